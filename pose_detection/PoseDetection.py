@@ -35,6 +35,9 @@ class PoseEstimationService:
 
         # Set the keypoints file name
         self.keypoints_file = self.generate_filename("user.txt")
+
+        # Frame by frame copy of the keypoints, readable while the capture runs
+        self.live_file = self.keypoints_file + ".live"
     
     def load_existing_filenames(self):
         if os.path.exists("last_saved_filename.txt"):
@@ -92,6 +95,10 @@ class PoseEstimationService:
         fourcc = cv2.VideoWriter_fourcc(*'XVID')
         out = cv2.VideoWriter(self.video_file, fourcc, 20.0, (frame_width, frame_height))
 
+        # Announce the live keypoints file so readers can follow the capture
+        live = open(self.live_file, 'w')
+        print(self.live_file, flush=True)
+
         while cap.isOpened() and self.is_running:
             ret, frame = cap.read()
             if not ret:
@@ -127,6 +134,9 @@ class PoseEstimationService:
             # Write the frame to the output video file
             out.write(frame)
 
+            # Append the frame's keypoints to the live file
+            self.write_live_frame(live)
+
             # Display the frame
             cv2.imshow('Pose Estimation', frame)
 
@@ -138,6 +148,8 @@ class PoseEstimationService:
         # Release resources
         cap.release()
         out.release()
+        live.write("End\n")
+        live.close()
         cv2.destroyAllWindows()
 
         self.save_keypoints_data()  # Save keypoints data to a text file
@@ -189,6 +201,16 @@ class PoseEstimationService:
                 x, y, z = hand_landmarks.landmark[landmark].x, hand_landmarks.landmark[landmark].y, hand_landmarks.landmark[landmark].z
                 self.keypoints_data[keypoint].append([self.frame_counter, x, y, z])
 
+    def write_live_frame(self, live):
+        # Write the keypoints detected in the current frame, followed by a blank line
+        live.write(f"Frame {self.frame_counter}:\n")
+        for keypoint, positions in self.keypoints_data.items():
+            if positions and positions[-1][0] == self.frame_counter:
+                pos = positions[-1]
+                live.write(f"  {keypoint}: x={pos[1]:.4f}, y={pos[2]:.4f}, z={pos[3]:.4f}\n")
+        live.write("\n")
+        live.flush()
+
     def save_keypoints_data(self):
         # Save the keypoints data to a .txt file
         with open(self.keypoints_file, 'w') as f:
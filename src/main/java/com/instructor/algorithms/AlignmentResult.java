@@ -0,0 +1,100 @@
+package com.instructor.algorithms;
+
+import java.util.List;
+
+/**
+ * DTW alignment path together with the local cost of every step, so callers
+ * scoring aligned frames do not have to recompute their distances.
+ */
+public class AlignmentResult {
+    private final List<int[]> path;
+    private final float[] localCosts;
+    private final float cumulativeCost;
+    private final int normalizer;
+
+    /**
+     * @param path       Pairs of {user frame, pro frame} along the path
+     * @param localCosts Distance of each pair, in path order
+     * @param normalizer max(n, m) of the aligned trajectories
+     */
+    AlignmentResult(List<int[]> path, float[] localCosts, int normalizer) {
+        this.path = path;
+        this.localCosts = localCosts;
+        this.normalizer = normalizer;
+
+        // Summed in path order, the same order the DTW recurrence adds them
+        float total = 0;
+        for (float cost : localCosts) {
+            total += cost;
+        }
+        this.cumulativeCost = total;
+    }
+
+    /**
+     * Attaches local costs to a path of frame numbers. Frame numbers are mapped
+     * back to packed indices with one forward walk, as paths are monotone.
+     *
+     * @param path       Pairs of {user frame, pro frame} along the path
+     * @param user       Packed user coordinates
+     * @param userFrames Frame number of each packed user frame, ascending
+     * @param pro        Packed professional coordinates
+     * @param proFrames  Frame number of each packed professional frame, ascending
+     */
+    static AlignmentResult of(List<int[]> path, float[] user, int[] userFrames, float[] pro, int[] proFrames) {
+        float[] localCosts = new float[path.size()];
+        int u = 0;
+        int p = 0;
+        for (int k = 0; k < localCosts.length; k++) {
+            int[] step = path.get(k);
+            while (userFrames[u] != step[0]) {
+                u++;
+            }
+            while (proFrames[p] != step[1]) {
+                p++;
+            }
+            localCosts[k] = DynamicTimeWarping.distance(user, u * 3, pro, p * 3);
+        }
+        return new AlignmentResult(path, localCosts, Math.max(userFrames.length, proFrames.length));
+    }
+
+    /**
+     * @return Pairs of {user frame, pro frame} along the path
+     */
+    public List<int[]> getPath() {
+        return path;
+    }
+
+    public int size() {
+        return path.size();
+    }
+
+    public int getUserFrame(int step) {
+        return path.get(step)[0];
+    }
+
+    public int getProFrame(int step) {
+        return path.get(step)[1];
+    }
+
+    /**
+     * @return Euclidean distance between the aligned frames of a step
+     */
+    public float getLocalCost(int step) {
+        return localCosts[step];
+    }
+
+    /**
+     * @return Sum of the local costs along the path
+     */
+    public float getCumulativeCost() {
+        return cumulativeCost;
+    }
+
+    /**
+     * @return Cumulative cost normalized by max(n, m), the value dtw() returns
+     *         for the same engine
+     */
+    public float getDistance() {
+        return normalizer == 0 ? 0 : cumulativeCost / normalizer;
+    }
+}
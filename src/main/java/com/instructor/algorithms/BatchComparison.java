@@ -0,0 +1,161 @@
+package com.instructor.algorithms;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.instructor.data.PoseSequence;
+
+/**
+ * Scores one user take against many professional references with the same
+ * average per-joint distance as DynamicTimeWarping.totalDtw.
+ *
+ * The user side (which joints are scored, their captured frames packed into
+ * contiguous xyz arrays, FastDTW pyramids) is prepared once in the constructor
+ * instead of once per reference, and the references are ReferenceProfiles
+ * whose professional side is prepared once for all users. Every (reference,
+ * joint) pair is then an independent task, so a batch keeps all cores busy
+ * even when a few references are much longer than the others.
+ */
+public class BatchComparison {
+    private final DtwEngine engine;
+    private final List<String> joints = new ArrayList<>();
+    private final List<float[]> userJoints = new ArrayList<>();
+
+    // FastDTW pyramids of the user joints, null for other engines
+    private final List<float[][]> userPyramids;
+
+    /**
+     * @param user User pose sequence compared against every reference
+     */
+    public BatchComparison(PoseSequence user) {
+        this(user, new ExactDtw());
+    }
+
+    /**
+     * @param user   User pose sequence compared against every reference
+     * @param engine DTW implementation used for every joint
+     */
+    public BatchComparison(PoseSequence user, DtwEngine engine) {
+        this.engine = engine;
+
+        // Same joints, in the same order, as DynamicTimeWarping.jointPairs
+        for (int joint = 0; joint < user.getJointCount(); joint++) {
+            String name = user.getJointName(joint);
+            if (DynamicTimeWarping.isPartNeeded(name)) {
+                float[] packed = user.packJoint(joint);
+                if (packed.length > 0) {
+                    joints.add(name);
+                    userJoints.add(packed);
+                }
+            }
+        }
+
+        if (engine instanceof FastDtw) {
+            userPyramids = new ArrayList<>();
+            for (float[] packed : userJoints) {
+                userPyramids.add(FastDtw.pyramid(packed));
+            }
+        } else {
+            userPyramids = null;
+        }
+    }
+
+    /**
+     * @return Number of user joints scored against each reference
+     */
+    public int getJointCount() {
+        return joints.size();
+    }
+
+    /**
+     * Scores the user take against every reference and ranks them. The
+     * references are compiled for this call only; keep ReferenceProfiles and
+     * use rank(List, ExecutorService) for a library that is scored repeatedly.
+     *
+     * @param references Professional pose sequences by name, in the order ties
+     *                   are reported
+     * @param executor   Executor running the joint comparisons, or null to run
+     *                   them on the calling thread
+     * @return One score per reference, nearest first; references sharing no
+     *         joint with the take come last with distance Float.MAX_VALUE
+     */
+    public List<ReferenceScore> rank(Map<String, PoseSequence> references, ExecutorService executor) {
+        List<ReferenceProfile> profiles = new ArrayList<>();
+        for (Map.Entry<String, PoseSequence> reference : references.entrySet()) {
+            profiles.add(ReferenceProfile.compile(reference.getKey(), reference.getValue()));
+        }
+        return rank(profiles, executor);
+    }
+
+    /**
+     * Scores the user take against every compiled reference and ranks them.
+     *
+     * @param references Compiled professional references, in the order ties are
+     *                   reported
+     * @param executor   Executor running the joint comparisons, or null to run
+     *                   them on the calling thread
+     * @return One score per reference, nearest first; references sharing no
+     *         joint with the take come last with distance Float.MAX_VALUE
+     */
+    public List<ReferenceScore> rank(List<ReferenceProfile> references, ExecutorService executor) {
+        // One task per compared joint of every reference
+        List<List<Future<Float>>> tasks = new ArrayList<>();
+        List<List<Float>> distances = new ArrayList<>();
+        for (ReferenceProfile pro : references) {
+            List<Future<Float>> referenceTasks = new ArrayList<>();
+            List<Float> referenceDistances = new ArrayList<>();
+
+            for (int k = 0; k < joints.size(); k++) {
+                String joint = joints.get(k);
+                if (pro.packed(joint) == null) {
+                    continue;
+                }
+
+                int slot = k;
+                if (executor == null) {
+                    referenceDistances.add(score(slot, pro, joint));
+                } else {
+                    referenceTasks.add(executor.submit(() -> score(slot, pro, joint)));
+                }
+            }
+            tasks.add(referenceTasks);
+            distances.add(referenceDistances);
+        }
+
+        List<ReferenceScore> scores = new ArrayList<>();
+        for (int r = 0; r < references.size(); r++) {
+            List<Float> referenceDistances = distances.get(r);
+            for (Future<Float> task : tasks.get(r)) {
+                referenceDistances.add(DynamicTimeWarping.await(task));
+            }
+
+            // Summed in joint order, so the distance equals totalDtw bit for bit
+            float totalDtwDistance = 0;
+            for (float distance : referenceDistances) {
+                totalDtwDistance += distance;
+            }
+            int count = referenceDistances.size();
+            scores.add(new ReferenceScore(references.get(r).getName(),
+                    count == 0 ? Float.MAX_VALUE : totalDtwDistance / count, count));
+        }
+
+        // Stable sort: equal distances keep the order of the references
+        scores.sort(Comparator.comparingDouble(ReferenceScore::getDistance));
+        return scores;
+    }
+
+    /**
+     * DTW distance of one user joint to the same joint of a reference, on the
+     * precompiled pyramids when the engine is FastDTW.
+     */
+    private float score(int slot, ReferenceProfile pro, String joint) {
+        if (userPyramids != null) {
+            return ((FastDtw) engine).dtw(userPyramids.get(slot), pro.pyramid(joint));
+        }
+        return engine.dtw(userJoints.get(slot), pro.packed(joint));
+    }
+}
@@ -0,0 +1,317 @@
+package com.instructor.algorithms;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+
+import com.instructor.data.PoseSequence;
+
+/**
+ * Size-bounded cache of DTW results, keyed by the content of the compared
+ * sequences rather than by object identity. Rescoring the same recordings, or
+ * switching between body parts of an already scored pair, is then a lookup
+ * instead of another quadratic DTW.
+ *
+ * Entries are found by a 64-bit hash of the inputs' coordinates and the engine,
+ * compared with equals (engine type and window or radius). Each entry keeps a
+ * copy of its inputs, and a hit is only returned if they equal the new inputs,
+ * so a hash collision costs a recomputation rather than a wrong result. The
+ * least recently used entry is evicted once the capacity is reached.
+ */
+public class DtwCache {
+    private final int capacity;
+    private final LinkedHashMap<Key, Entry> entries;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity Maximum number of cached results
+     */
+    public DtwCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        // Access order turns iteration order into least recently used first
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                return size() > DtwCache.this.capacity;
+            }
+        };
+    }
+
+    /**
+     * Cached {@link DynamicTimeWarping#totalDtw(PoseSequence, PoseSequence, DtwEngine, ExecutorService)}.
+     *
+     * @param user     User pose sequence
+     * @param pro      Professional pose sequence
+     * @param engine   DTW implementation
+     * @param executor Executor running the joints on a miss
+     * @return Average DTW distance over the scored joints
+     */
+    public float totalDtw(PoseSequence user, PoseSequence pro, DtwEngine engine, ExecutorService executor) {
+        Key key = new Key("total", hash(user), hash(pro), engine);
+        Float cached = (Float) lookup(key, user, pro);
+        if (cached != null) {
+            return cached;
+        }
+
+        float total = DynamicTimeWarping.totalDtw(user, pro, engine, executor);
+        store(key, new Entry(user.copy(), pro.copy(), total));
+        return total;
+    }
+
+    /**
+     * Cached {@link DynamicTimeWarping#totalDtw(PoseSequence, ReferenceProfile, DtwEngine, ExecutorService)},
+     * sharing entries with the sequence overload for the reference's sequence.
+     *
+     * @param user     User pose sequence
+     * @param pro      Compiled professional reference
+     * @param engine   DTW implementation
+     * @param executor Executor running the joints on a miss
+     * @return Average DTW distance over the scored joints
+     */
+    public float totalDtw(PoseSequence user, ReferenceProfile pro, DtwEngine engine, ExecutorService executor) {
+        Key key = new Key("total", hash(user), hash(pro.getSequence()), engine);
+        Float cached = (Float) lookup(key, user, pro.getSequence());
+        if (cached != null) {
+            return cached;
+        }
+
+        float total = DynamicTimeWarping.totalDtw(user, pro, engine, executor);
+        store(key, new Entry(user.copy(), pro.getSequence().copy(), total));
+        return total;
+    }
+
+    /**
+     * Cached {@link DynamicTimeWarping#align(Map, Map, DtwEngine)}. The returned
+     * result is shared between callers and must not be modified.
+     *
+     * @param userPartData Map of user frames and coordinates
+     * @param proPartData  Map of professional frames and coordinates
+     * @param engine       DTW implementation
+     * @return The path, its local costs and cumulative cost
+     */
+    public AlignmentResult align(Map<Integer, float[]> userPartData, Map<Integer, float[]> proPartData,
+            DtwEngine engine) {
+        Key key = new Key("align", hash(userPartData), hash(proPartData), engine);
+        AlignmentResult cached = (AlignmentResult) lookup(key, userPartData, proPartData);
+        if (cached != null) {
+            return cached;
+        }
+
+        AlignmentResult alignment = DynamicTimeWarping.align(userPartData, proPartData, engine);
+        store(key, new Entry(copy(userPartData), copy(proPartData), alignment));
+        return alignment;
+    }
+
+    /**
+     * @return The cached result, or null if there is none for these inputs
+     */
+    private synchronized Object lookup(Key key, Object user, Object pro) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.matches(user, pro)) {
+            hits++;
+            return entry.value;
+        }
+        misses++;
+        return null;
+    }
+
+    // Results are computed outside the lock; a concurrent miss on the same key
+    // computes the same value twice, which is harmless
+    private synchronized void store(Key key, Entry entry) {
+        entries.put(key, entry);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * @return Fraction of lookups answered from the cache
+     */
+    public synchronized float getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (float) hits / lookups;
+    }
+
+    /**
+     * Drops all entries and resets the counters.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        hits = 0;
+        misses = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("DtwCache(%d/%d entries, %d hits, %d misses)", entries.size(), capacity, hits, misses);
+    }
+
+    /**
+     * Hash of a whole pose sequence: joint names, frame range, presence bitmap
+     * and every coordinate.
+     */
+    static long hash(PoseSequence sequence) {
+        long h = FNV_OFFSET;
+        for (String joint : sequence.getJointNames()) {
+            h = mix(h, joint.hashCode());
+        }
+        h = mix(h, sequence.getFirstFrame());
+        h = mix(h, sequence.getFrameCount());
+        for (int joint = 0; joint < sequence.getJointCount(); joint++) {
+            for (int frame = 0; frame < sequence.getFrameCount(); frame++) {
+                h = mix(h, sequence.isPresent(joint, frame) ? 1 : 0);
+            }
+        }
+        for (float value : sequence.getCoordinates()) {
+            h = mix(h, Float.floatToIntBits(value));
+        }
+        return finish(h);
+    }
+
+    /**
+     * Hash of one body part's frames. Entries are hashed on their own and summed,
+     * so the result does not depend on the map's iteration order. Frames without
+     * coordinates are skipped, as DynamicTimeWarping skips them.
+     */
+    static long hash(Map<Integer, float[]> partData) {
+        long sum = 0;
+        for (Map.Entry<Integer, float[]> entry : partData.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            long h = mix(FNV_OFFSET, entry.getKey());
+            for (float value : entry.getValue()) {
+                h = mix(h, Float.floatToIntBits(value));
+            }
+            sum += finish(h) + 1; // Plus one per frame, folding in the frame count
+        }
+        return finish(sum);
+    }
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // FNV-1a over a whole int at a time
+    private static long mix(long h, int value) {
+        return (h ^ value) * FNV_PRIME;
+    }
+
+    // Final avalanche (MurmurHash3 fmix64) so nearby inputs spread over all bits
+    private static long finish(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    /**
+     * @return Copy of the frames with coordinates, arrays included
+     */
+    private static Map<Integer, float[]> copy(Map<Integer, float[]> partData) {
+        Map<Integer, float[]> copy = new HashMap<>();
+        for (Map.Entry<Integer, float[]> entry : partData.entrySet()) {
+            if (entry.getValue() != null) {
+                copy.put(entry.getKey(), entry.getValue().clone());
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * @return True if partData has exactly the frames of the copy, with equal
+     *         coordinates; frames without coordinates are ignored
+     */
+    private static boolean sameFrames(Map<Integer, float[]> copy, Map<Integer, float[]> partData) {
+        int frames = 0;
+        for (Map.Entry<Integer, float[]> entry : partData.entrySet()) {
+            if (entry.getValue() == null) {
+                continue;
+            }
+            if (!Arrays.equals(entry.getValue(), copy.get(entry.getKey()))) {
+                return false;
+            }
+            frames++;
+        }
+        return frames == copy.size();
+    }
+
+    /**
+     * A result with copies of the inputs it was computed from: PoseSequences for
+     * total distances, frame maps for alignments.
+     */
+    private static final class Entry {
+        private final Object user;
+        private final Object pro;
+        private final Object value;
+
+        Entry(Object user, Object pro, Object value) {
+            this.user = user;
+            this.pro = pro;
+            this.value = value;
+        }
+
+        @SuppressWarnings("unchecked")
+        boolean matches(Object user, Object pro) {
+            if (this.user instanceof PoseSequence) {
+                return ((PoseSequence) this.user).contentEquals((PoseSequence) user)
+                        && ((PoseSequence) this.pro).contentEquals((PoseSequence) pro);
+            }
+            return sameFrames((Map<Integer, float[]>) this.user, (Map<Integer, float[]>) user)
+                    && sameFrames((Map<Integer, float[]>) this.pro, (Map<Integer, float[]>) pro);
+        }
+    }
+
+    /**
+     * Kind of result, content hashes of both inputs and the engine.
+     */
+    private static final class Key {
+        private final String kind;
+        private final long userHash;
+        private final long proHash;
+        private final DtwEngine engine;
+
+        Key(String kind, long userHash, long proHash, DtwEngine engine) {
+            this.kind = kind;
+            this.userHash = userHash;
+            this.proHash = proHash;
+            this.engine = engine;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return userHash == other.userHash && proHash == other.proHash && kind.equals(other.kind)
+                    && engine.equals(other.engine);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(kind, userHash, proHash, engine);
+        }
+    }
+}
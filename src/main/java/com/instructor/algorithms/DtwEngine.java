@@ -0,0 +1,59 @@
+package com.instructor.algorithms;
+
+import java.util.List;
+
+/**
+ * Common interface of the DTW implementations, so callers can trade exactness
+ * for speed without changing how they score.
+ *
+ * Both methods take packed joint trajectories (x, y, z per frame). Engines
+ * with parameters implement equals and hashCode over them, as DtwCache reuses
+ * a result for any equal engine.
+ */
+public interface DtwEngine {
+
+    /**
+     * @param user Packed user coordinates
+     * @param pro  Packed professional coordinates
+     * @return The DTW distance normalized by max(n, m)
+     */
+    float dtw(float[] user, float[] pro);
+
+    /**
+     * Early-abandoning variant for ranking against a best-so-far distance.
+     * Implementations that cannot stop early compute the full distance.
+     *
+     * @param user   Packed user coordinates
+     * @param pro    Packed professional coordinates
+     * @param cutoff Largest normalized distance of interest
+     * @return The DTW distance normalized by max(n, m), or
+     *         Float.POSITIVE_INFINITY if it is above the cutoff
+     */
+    default float dtw(float[] user, float[] pro, float cutoff) {
+        float distance = dtw(user, pro);
+        return distance > cutoff ? Float.POSITIVE_INFINITY : distance;
+    }
+
+    /**
+     * @param user       Packed user coordinates
+     * @param userFrames Frame number of each packed user frame
+     * @param pro        Packed professional coordinates
+     * @param proFrames  Frame number of each packed professional frame
+     * @return Pairs of {user frame, pro frame} along the alignment path
+     */
+    List<int[]> dtwWithAlignmentPath(float[] user, int[] userFrames, float[] pro, int[] proFrames);
+
+    /**
+     * Alignment path with the local cost of every step.
+     *
+     * @param user       Packed user coordinates
+     * @param userFrames Frame number of each packed user frame
+     * @param pro        Packed professional coordinates
+     * @param proFrames  Frame number of each packed professional frame
+     * @return The path, its local costs and cumulative cost
+     */
+    default AlignmentResult align(float[] user, int[] userFrames, float[] pro, int[] proFrames) {
+        return AlignmentResult.of(dtwWithAlignmentPath(user, userFrames, pro, proFrames), user, userFrames, pro,
+                proFrames);
+    }
+}
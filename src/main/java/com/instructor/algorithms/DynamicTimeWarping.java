@@ -1,10 +1,32 @@
 package com.instructor.algorithms;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
-import com.instructor.data.PoseDataProcessing;
+import com.instructor.data.PoseSequence;
 
 public class DynamicTimeWarping {
+    // Above this many matrix cells alignments switch to the low-memory solver
+    // (a full float cost matrix plus int path matrix would exceed ~32 MB)
+    public static final long LINEAR_SPACE_THRESHOLD = 1L << 22;
+
+    // Above this many matrix cells a single score-only DTW is computed in tiles
+    // along anti-diagonals on the common fork-join pool
+    public static final long WAVEFRONT_THRESHOLD = 1L << 22;
+
+    // Body parts compared by the scoring
+    public static final List<String> SCORED_JOINTS = List.of("nose", "shoulder_left", "shoulder_right",
+            "elbow_left", "elbow_right", "wrist_left", "wrist_right", "hip_left", "hip_right", "knee_left",
+            "knee_right", "ankle_left", "ankle_right", "heel_left", "heel_right", "foot_index_left",
+            "foot_index_right");
+
+    // Rolling rows and local cost row for the score-only kernel, reused by every
+    // call on a thread
+    private static final ThreadLocal<float[][]> ROW_BUFFERS = ThreadLocal
+            .withInitial(() -> new float[][] { new float[0], new float[0], new float[0] });
 
     /**
      * Calculates the total Dynamic Time Warping (DTW) distance between two sets of
@@ -18,8 +40,52 @@ public class DynamicTimeWarping {
      */
     public static float totalDtw(Map<String, Map<Integer, float[]>> userKeypoints,
             Map<String, Map<Integer, float[]>> proKeypoints) {
-        float totalDtwDistance = 0;
-        int partCount = 0;
+        return totalDtw(userKeypoints, proKeypoints, WarpingWindow.NONE);
+    }
+
+    /**
+     * Calculates the total DTW distance for all body parts, restricting every
+     * per-joint alignment to the given warping window.
+     *
+     * @param userKeypoints Map of user keypoints
+     * @param proKeypoints  Map of professional keypoints
+     * @param window        Global path constraint
+     * @return The average per-joint DTW distance
+     */
+    public static float totalDtw(Map<String, Map<Integer, float[]>> userKeypoints,
+            Map<String, Map<Integer, float[]>> proKeypoints, WarpingWindow window) {
+        return totalDtw(userKeypoints, proKeypoints, new ExactDtw(window));
+    }
+
+    /**
+     * Calculates the total DTW distance for all body parts with the given DTW
+     * implementation.
+     *
+     * @param userKeypoints Map of user keypoints
+     * @param proKeypoints  Map of professional keypoints
+     * @param engine        DTW implementation used for every joint
+     * @return The average per-joint DTW distance
+     */
+    public static float totalDtw(Map<String, Map<Integer, float[]>> userKeypoints,
+            Map<String, Map<Integer, float[]>> proKeypoints, DtwEngine engine) {
+        return totalDtw(userKeypoints, proKeypoints, engine, null);
+    }
+
+    /**
+     * Calculates the total DTW distance for all body parts, running the joints
+     * on the given executor. The per-joint distances are summed in joint order,
+     * so the result is bit-identical to the serial overload.
+     *
+     * @param userKeypoints Map of user keypoints
+     * @param proKeypoints  Map of professional keypoints
+     * @param engine        DTW implementation used for every joint
+     * @param executor      Executor running the joints, or null to run them on the
+     *                      calling thread
+     * @return The average per-joint DTW distance
+     */
+    public static float totalDtw(Map<String, Map<Integer, float[]>> userKeypoints,
+            Map<String, Map<Integer, float[]>> proKeypoints, DtwEngine engine, ExecutorService executor) {
+        List<float[][]> jointPairs = new ArrayList<>();
 
         for (String keypoint : userKeypoints.keySet()) {
 
@@ -28,28 +94,233 @@ public class DynamicTimeWarping {
                 Map<Integer, float[]> userPartData = userKeypoints.getOrDefault(keypoint, new HashMap<>());
                 Map<Integer, float[]> proPartData = proKeypoints.getOrDefault(keypoint, new HashMap<>());
 
-                if (!userPartData.isEmpty() && !proPartData.isEmpty()) {
-                    float dtwDistance = dtw(userPartData, proPartData);
-                    totalDtwDistance += dtwDistance;
-                    partCount++;
+                float[] user = pack(userPartData, sortedKeys(userPartData));
+                float[] pro = pack(proPartData, sortedKeys(proPartData));
+                if (user.length > 0 && pro.length > 0) {
+                    jointPairs.add(new float[][] { user, pro });
                 }
             }
         }
 
-        if (partCount > 0) {
-            return totalDtwDistance / partCount;
-        } else {
+        return averageDtw(jointPairs, engine, executor);
+    }
+
+    /**
+     * Calculates the total DTW distance between two columnar pose sequences for
+     * all needed body parts. Equivalent to the map based overload, but works on
+     * the packed coordinates directly.
+     *
+     * @param user User pose sequence
+     * @param pro  Professional pose sequence
+     * @return The average per-joint DTW distance, or Float.MAX_VALUE if no joint
+     *         could be compared
+     */
+    public static float totalDtw(PoseSequence user, PoseSequence pro) {
+        return totalDtw(user, pro, WarpingWindow.NONE);
+    }
+
+    /**
+     * Calculates the total DTW distance between two pose sequences, restricting
+     * every per-joint alignment to the given warping window.
+     *
+     * @param user   User pose sequence
+     * @param pro    Professional pose sequence
+     * @param window Global path constraint
+     * @return The average per-joint DTW distance
+     */
+    public static float totalDtw(PoseSequence user, PoseSequence pro, WarpingWindow window) {
+        return totalDtw(user, pro, new ExactDtw(window));
+    }
+
+    /**
+     * Calculates the total DTW distance between two pose sequences with the given
+     * DTW implementation.
+     *
+     * @param user   User pose sequence
+     * @param pro    Professional pose sequence
+     * @param engine DTW implementation used for every joint
+     * @return The average per-joint DTW distance
+     */
+    public static float totalDtw(PoseSequence user, PoseSequence pro, DtwEngine engine) {
+        return totalDtw(user, pro, engine, null);
+    }
+
+    /**
+     * Calculates the total DTW distance between two pose sequences, running the
+     * joints on the given executor. The per-joint distances are summed in joint
+     * order, so the result is bit-identical to the serial overload.
+     *
+     * @param user     User pose sequence
+     * @param pro      Professional pose sequence
+     * @param engine   DTW implementation used for every joint
+     * @param executor Executor running the joints, or null to run them on the
+     *                 calling thread
+     * @return The average per-joint DTW distance
+     */
+    public static float totalDtw(PoseSequence user, PoseSequence pro, DtwEngine engine,
+            ExecutorService executor) {
+        return averageDtw(jointPairs(user, pro), engine, executor);
+    }
+
+    /**
+     * Calculates the total DTW distance between a pose sequence and a compiled
+     * reference, reusing the reference's packed trajectories. Bit-identical to
+     * the overload taking the reference's sequence.
+     *
+     * @param user     User pose sequence
+     * @param pro      Compiled professional reference
+     * @param engine   DTW implementation used for every joint
+     * @param executor Executor running the joints, or null to run them on the
+     *                 calling thread
+     * @return The average per-joint DTW distance
+     */
+    public static float totalDtw(PoseSequence user, ReferenceProfile pro, DtwEngine engine,
+            ExecutorService executor) {
+        return averageDtw(jointPairs(user, pro), engine, executor);
+    }
+
+    /**
+     * Calculates the total DTW distance between two pose sequences, giving up as
+     * soon as the average is certain to exceed the cutoff. The joints share a
+     * budget of cutoff times the joint count: each joint may only use what the
+     * previous ones left, and once the budget is spent the remaining joints are
+     * skipped.
+     *
+     * @param user   User pose sequence
+     * @param pro    Professional pose sequence
+     * @param engine DTW implementation used for every joint
+     * @param cutoff Largest average per-joint distance of interest
+     * @return The average per-joint DTW distance, Float.POSITIVE_INFINITY if it
+     *         is above the cutoff, or Float.MAX_VALUE if no joint could be
+     *         compared
+     */
+    public static float totalDtw(PoseSequence user, PoseSequence pro, DtwEngine engine, float cutoff) {
+        return averageDtw(jointPairs(user, pro), engine, cutoff);
+    }
+
+    /**
+     * Early-abandoning average of the DTW distances of packed {user, pro} joint
+     * pairs, see totalDtw(user, pro, engine, cutoff).
+     */
+    static float averageDtw(List<float[][]> jointPairs, DtwEngine engine, float cutoff) {
+        if (jointPairs.isEmpty()) {
             return Float.MAX_VALUE;
         }
+
+        float budget = cutoff * jointPairs.size();
+        float totalDtwDistance = 0;
+        for (float[][] pair : jointPairs) {
+            float dtwDistance = engine.dtw(pair[0], pair[1], budget - totalDtwDistance);
+            if (dtwDistance == Float.POSITIVE_INFINITY) {
+                return Float.POSITIVE_INFINITY;
+            }
+            totalDtwDistance += dtwDistance;
+        }
+
+        float average = totalDtwDistance / jointPairs.size();
+        return average > cutoff ? Float.POSITIVE_INFINITY : average;
+    }
+
+    /**
+     * @return Packed {user, pro} trajectories of the needed joints captured in
+     *         both sequences, in user joint order
+     */
+    static List<float[][]> jointPairs(PoseSequence user, PoseSequence pro) {
+        List<float[][]> jointPairs = new ArrayList<>();
+
+        for (int userJoint = 0; userJoint < user.getJointCount(); userJoint++) {
+            String keypoint = user.getJointName(userJoint);
+            int proJoint = pro.getJointIndex(keypoint);
+
+            if (isPartNeeded(keypoint) && proJoint >= 0) {
+                float[] userPacked = user.packJoint(userJoint);
+                float[] proPacked = pro.packJoint(proJoint);
+
+                if (userPacked.length > 0 && proPacked.length > 0) {
+                    jointPairs.add(new float[][] { userPacked, proPacked });
+                }
+            }
+        }
+        return jointPairs;
+    }
+
+    /**
+     * @return Packed {user, pro} trajectories of the joints scored in the
+     *         reference and captured by the user, in user joint order
+     */
+    static List<float[][]> jointPairs(PoseSequence user, ReferenceProfile pro) {
+        List<float[][]> jointPairs = new ArrayList<>();
+
+        for (int userJoint = 0; userJoint < user.getJointCount(); userJoint++) {
+            float[] proPacked = pro.packed(user.getJointName(userJoint));
+            if (proPacked != null) {
+                float[] userPacked = user.packJoint(userJoint);
+
+                if (userPacked.length > 0) {
+                    jointPairs.add(new float[][] { userPacked, proPacked });
+                }
+            }
+        }
+        return jointPairs;
+    }
+
+    /**
+     * Averages the DTW distances of packed {user, pro} joint pairs, adding them in
+     * list order whether or not they were computed in parallel.
+     *
+     * @return The average distance, or Float.MAX_VALUE if there are no pairs
+     */
+    private static float averageDtw(List<float[][]> jointPairs, DtwEngine engine, ExecutorService executor) {
+        if (jointPairs.isEmpty()) {
+            return Float.MAX_VALUE;
+        }
+
+        float[] distances = new float[jointPairs.size()];
+        if (executor == null || jointPairs.size() == 1) {
+            for (int k = 0; k < distances.length; k++) {
+                distances[k] = engine.dtw(jointPairs.get(k)[0], jointPairs.get(k)[1]);
+            }
+        } else {
+            List<Future<Float>> futures = new ArrayList<>();
+            for (float[][] pair : jointPairs) {
+                futures.add(executor.submit(() -> engine.dtw(pair[0], pair[1])));
+            }
+            for (int k = 0; k < distances.length; k++) {
+                distances[k] = await(futures.get(k));
+            }
+        }
+
+        float totalDtwDistance = 0;
+        for (float distance : distances) {
+            totalDtwDistance += distance;
+        }
+        return totalDtwDistance / distances.length;
+    }
+
+    /**
+     * Waits for a parallel task, rethrowing its failure unchecked.
+     */
+    static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a DTW task", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
     }
 
     /**
      * Computes the Dynamic Time Warping (DTW) distance between two sets of keypoint
      * data.
-     * 
+     *
      * This method calculates the DTW distance matrix and returns the normalized
      * cumulative distance between frames of user and professional keypoints.
-     * 
+     *
      * @param userPartData A map of frame indices to keypoint coordinates for the
      *                     user.
      * @param proPartData  A map of frame indices to keypoint coordinates for the
@@ -58,47 +329,254 @@ public class DynamicTimeWarping {
      *         two datasets.
      */
     public static float dtw(Map<Integer, float[]> userPartData, Map<Integer, float[]> proPartData) {
-        PoseDataProcessing poseDataProcessing = new PoseDataProcessing();
+        return dtw(userPartData, proPartData, WarpingWindow.NONE);
+    }
 
+    /**
+     * Computes the normalized DTW distance between two sets of keypoint data,
+     * only visiting cells inside the warping window.
+     *
+     * @param userPartData Map of frame indices to coordinates for the user
+     * @param proPartData  Map of frame indices to coordinates for the professional
+     * @param window       Global path constraint
+     * @return The normalized DTW distance
+     */
+    public static float dtw(Map<Integer, float[]> userPartData, Map<Integer, float[]> proPartData,
+            WarpingWindow window) {
         // Use sorted keys to access data consistently
-        List<Integer> userKeys = new ArrayList<>(userPartData.keySet());
-        List<Integer> proKeys = new ArrayList<>(proPartData.keySet());
-        MergeSort.mergeSort(userKeys, true); // Sort in ascending order
-        MergeSort.mergeSort(proKeys, true); // Sort in ascending order
+        return dtw(pack(userPartData, sortedKeys(userPartData)), pack(proPartData, sortedKeys(proPartData)),
+                window);
+    }
 
-        int n = userKeys.size();
-        int m = proKeys.size();
+    /**
+     * Computes the normalized DTW distance between two packed joint trajectories.
+     *
+     * @param user Packed user coordinates (x, y, z per frame)
+     * @param pro  Packed professional coordinates (x, y, z per frame)
+     * @return The normalized DTW distance
+     */
+    public static float dtw(float[] user, float[] pro) {
+        return dtw(user, pro, WarpingWindow.NONE);
+    }
 
-        float[][] dtwMatrix = new float[n + 1][m + 1];
-        for (int i = 0; i <= n; i++) {
-            Arrays.fill(dtwMatrix[i], Float.MAX_VALUE);
+    /**
+     * Computes the normalized DTW distance between two packed joint trajectories,
+     * only visiting cells inside the warping window. With a band the cost is
+     * O(n * band) instead of O(n * m).
+     *
+     * Only the distance is returned, so the matrix is never materialised: two
+     * rolling rows are kept in per-thread buffers that are reused across calls.
+     * Without a window the shorter sequence is laid along the rows, giving
+     * O(min(n, m)) memory.
+     *
+     * @param user   Packed user coordinates (x, y, z per frame)
+     * @param pro    Packed professional coordinates (x, y, z per frame)
+     * @param window Global path constraint
+     * @return The normalized DTW distance
+     */
+    public static float dtw(float[] user, float[] pro, WarpingWindow window) {
+        // DTW is symmetric, so without a window the shorter sequence can be the row
+        if (window.isUnconstrained() && pro.length > user.length) {
+            return dtw(LocalCost.joint(pro, user), pro.length / 3, user.length / 3, window);
         }
-        dtwMatrix[0][0] = 0;
+        return dtw(LocalCost.joint(user, pro), user.length / 3, pro.length / 3, window);
+    }
+
+    /**
+     * Computes the normalized DTW distance between two packed joint trajectories,
+     * abandoning as soon as it is certain to exceed the cutoff. Useful when
+     * ranking candidates against the best distance found so far.
+     *
+     * @param user   Packed user coordinates (x, y, z per frame)
+     * @param pro    Packed professional coordinates (x, y, z per frame)
+     * @param window Global path constraint
+     * @param cutoff Largest normalized distance of interest
+     * @return The normalized DTW distance, or Float.POSITIVE_INFINITY if it is
+     *         above the cutoff
+     */
+    public static float dtw(float[] user, float[] pro, WarpingWindow window, float cutoff) {
+        if (window.isUnconstrained() && pro.length > user.length) {
+            return dtw(LocalCost.joint(pro, user), pro.length / 3, user.length / 3, window, cutoff);
+        }
+        return dtw(LocalCost.joint(user, pro), user.length / 3, pro.length / 3, window, cutoff);
+    }
+
+    /**
+     * Rolling-row DTW kernel shared by the single and multi joint distances.
+     *
+     * @param localCost Cost of each cell
+     * @param n         Number of rows (user frames)
+     * @param m         Number of columns (professional frames)
+     * @param window    Global path constraint
+     * @return The normalized DTW distance
+     */
+    static float dtw(LocalCost localCost, int n, int m, WarpingWindow window) {
+        if ((long) n * m > WAVEFRONT_THRESHOLD && ForkJoinPool.getCommonPoolParallelism() > 1) {
+            return WavefrontDtw.dtw(localCost, n, m, window, ForkJoinPool.commonPool());
+        }
+        return dtw(localCost, n, m, window, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Early-abandoning rolling-row DTW kernel. Local costs are never negative, so
+     * once every cell of a row is above the cutoff the result must be too.
+     *
+     * @param localCost Cost of each cell
+     * @param n         Number of rows (user frames)
+     * @param m         Number of columns (professional frames)
+     * @param window    Global path constraint
+     * @param cutoff    Largest normalized distance of interest
+     * @return The normalized DTW distance, or Float.POSITIVE_INFINITY if it is
+     *         above the cutoff
+     */
+    static float dtw(LocalCost localCost, int n, int m, WarpingWindow window, float cutoff) {
+        float rawCutoff = cutoff * Math.max(n, m);
+        boolean abandon = rawCutoff < Float.MAX_VALUE;
+
+        float[][] rows = rowBuffers(m + 1);
+        float[] previous = rows[0];
+        float[] current = rows[1];
+        float[] costs = rows[2];
+
+        // Row 0: only the origin is reachable
+        previous[0] = 0;
+        Arrays.fill(previous, 1, n > 0 ? window.upper(1, n, m) + 1 : m + 1, Float.MAX_VALUE);
 
         for (int i = 1; i <= n; i++) {
-            for (int j = 1; j <= m; j++) {
-                float[] userCoords = userPartData.get(userKeys.get(i - 1));
-                float[] proCoords = proPartData.get(proKeys.get(j - 1));
+            int lower = window.lower(i, n, m);
+            int upper = window.upper(i, n, m);
+            current[lower - 1] = Float.MAX_VALUE;
+            if (lower <= upper) {
+                localCost.row(i - 1, lower - 1, upper - 1, costs);
+            }
 
-                float cost = 0;
-                if (userCoords != null && proCoords != null) {
-                    cost = poseDataProcessing.calculateDistance(userCoords, proCoords);
+            // The steps from the previous row do not depend on each other and
+            // vectorize; only the horizontal step is left to the sequential pass.
+            // Rounding is monotone, so cost + min(...) equals min(cost + ...)
+            for (int j = lower; j <= upper; j++) {
+                current[j] = costs[j - 1] + Math.min(previous[j], previous[j - 1]);
+            }
+            for (int j = lower; j <= upper; j++) {
+                current[j] = Math.min(current[j], costs[j - 1] + current[j - 1]);
+            }
+
+            if (abandon) {
+                float rowMin = Float.MAX_VALUE;
+                for (int j = lower; j <= upper; j++) {
+                    rowMin = Math.min(rowMin, current[j]);
+                }
+                if (rowMin > rawCutoff) {
+                    return Float.POSITIVE_INFINITY;
                 }
+            }
 
-                dtwMatrix[i][j] = cost + Math.min(
-                        Math.min(dtwMatrix[i - 1][j], dtwMatrix[i][j - 1]),
-                        dtwMatrix[i - 1][j - 1]);
+            // Cells the next row can read beyond this row's window are unreachable
+            if (i < n) {
+                Arrays.fill(current, upper + 1, window.upper(i + 1, n, m) + 1, Float.MAX_VALUE);
             }
+
+            float[] swap = previous;
+            previous = current;
+            current = swap;
         }
 
-        return dtwMatrix[n][m] / Math.max(n, m);
+        float distance = previous[m] / Math.max(n, m);
+        return distance > cutoff ? Float.POSITIVE_INFINITY : distance;
+    }
+
+    /**
+     * Subsequence (open-begin, open-end) DTW: finds the part of the professional
+     * trajectory that best matches the whole user trajectory.
+     *
+     * @param user Packed user coordinates (x, y, z per frame)
+     * @param pro  Packed professional coordinates (x, y, z per frame)
+     * @return The best match, with start and end as indices into the packed
+     *         professional frames, or null if either trajectory is empty
+     */
+    public static SubsequenceMatch subsequenceDtw(float[] user, float[] pro) {
+        return subsequenceDtw(LocalCost.joint(pro, user), user.length / 3, pro.length / 3);
+    }
+
+    /**
+     * Subsequence DTW kernel, a single pass over the professional frames that
+     * keeps one column of the matrix. Every column may start a match at no cost
+     * and every column may end one; the start of each cell's best path is carried
+     * along with its cost.
+     *
+     * @param localCost Cost of each cell with professional frames as rows and
+     *                  user frames as columns
+     * @param n         Number of user frames
+     * @param m         Number of professional frames
+     * @return The match with the lowest cumulative cost, or null if n or m is 0
+     */
+    static SubsequenceMatch subsequenceDtw(LocalCost localCost, int n, int m) {
+        if (n == 0 || m == 0) {
+            return null;
+        }
+
+        float[] previous = new float[n + 1];
+        float[] current = new float[n + 1];
+        int[] previousStart = new int[n + 1];
+        int[] currentStart = new int[n + 1];
+        float[] costs = new float[n];
+
+        // Before the first professional frame no user frame is matched
+        Arrays.fill(previous, Float.MAX_VALUE);
+
+        float bestCost = Float.MAX_VALUE;
+        int bestStart = 0;
+        int bestEnd = 0;
+
+        for (int j = 0; j < m; j++) {
+            localCost.row(j, 0, n - 1, costs);
+
+            // Starting a match here is never worse than stretching an earlier
+            // start over the first user frame, since costs are not negative
+            current[1] = costs[0];
+            currentStart[1] = j;
+
+            for (int i = 2; i <= n; i++) {
+                float diagonal = previous[i - 1];
+                float vertical = current[i - 1];
+                float horizontal = previous[i];
+
+                // Prefer the diagonal on ties. Only the cost and start of a match
+                // are kept, so unlike the alignment paths (vertical, horizontal,
+                // then diagonal) the order only picks among equally cheap starts
+                if (diagonal <= vertical && diagonal <= horizontal) {
+                    current[i] = costs[i - 1] + diagonal;
+                    currentStart[i] = previousStart[i - 1];
+                } else if (vertical <= horizontal) {
+                    current[i] = costs[i - 1] + vertical;
+                    currentStart[i] = currentStart[i - 1];
+                } else {
+                    current[i] = costs[i - 1] + horizontal;
+                    currentStart[i] = previousStart[i];
+                }
+            }
+
+            if (current[n] < bestCost) {
+                bestCost = current[n];
+                bestStart = currentStart[n];
+                bestEnd = j;
+            }
+
+            float[] swap = previous;
+            previous = current;
+            current = swap;
+            int[] swapStart = previousStart;
+            previousStart = currentStart;
+            currentStart = swapStart;
+        }
+
+        return new SubsequenceMatch(bestStart, bestEnd, bestCost / Math.max(n, bestEnd - bestStart + 1));
     }
 
     /**
      * Calculates the Dynamic Time Warping (DTW) distance between two sets of
      * keypoints, as well as the alignment path that produces the minimum DTW
      * distance.
-     * 
+     *
      * @param userPartData Map containing the keypoints data for the user, with
      *                     frames as keys and coordinates as values.
      * @param proPartData  Map containing the keypoints data for the professional
@@ -110,18 +588,188 @@ public class DynamicTimeWarping {
      */
     public static List<int[]> dtwWithAlignmentPath(Map<Integer, float[]> userPartData,
             Map<Integer, float[]> proPartData) {
-        PoseDataProcessing poseDataProcessing = new PoseDataProcessing();
+        return dtwWithAlignmentPath(userPartData, proPartData, WarpingWindow.NONE);
+    }
+
+    /**
+     * Calculates the DTW alignment path between two sets of keypoints, restricted
+     * to the given warping window.
+     *
+     * @param userPartData Map of frame indices to coordinates for the user
+     * @param proPartData  Map of frame indices to coordinates for the professional
+     * @param window       Global path constraint
+     * @return Pairs of {user frame, pro frame} along the path
+     */
+    public static List<int[]> dtwWithAlignmentPath(Map<Integer, float[]> userPartData,
+            Map<Integer, float[]> proPartData, WarpingWindow window) {
+        return dtwWithAlignmentPath(userPartData, proPartData, new ExactDtw(window));
+    }
+
+    /**
+     * Calculates the alignment path between two sets of keypoints with the given
+     * DTW implementation.
+     *
+     * @param userPartData Map of frame indices to coordinates for the user
+     * @param proPartData  Map of frame indices to coordinates for the professional
+     * @param engine       DTW implementation
+     * @return Pairs of {user frame, pro frame} along the path
+     */
+    public static List<int[]> dtwWithAlignmentPath(Map<Integer, float[]> userPartData,
+            Map<Integer, float[]> proPartData, DtwEngine engine) {
+        int[] userFrames = sortedKeys(userPartData);
+        int[] proFrames = sortedKeys(proPartData);
 
-        List<Integer> userKeys = new ArrayList<>(userPartData.keySet());
-        List<Integer> proKeys = new ArrayList<>(proPartData.keySet());
-        MergeSort.mergeSort(userKeys, true); // Sort in ascending order
-        MergeSort.mergeSort(proKeys, true); // Sort in ascending order
+        return engine.dtwWithAlignmentPath(pack(userPartData, userFrames), userFrames,
+                pack(proPartData, proFrames), proFrames);
+    }
 
-        int n = userKeys.size();
-        int m = proKeys.size();
+    /**
+     * Calculates the DTW alignment path for one joint of two pose sequences.
+     *
+     * @param user  User pose sequence
+     * @param pro   Professional pose sequence
+     * @param joint Joint name (e.g. shoulder_left)
+     * @return Pairs of {user frame, pro frame} frame numbers along the path, empty
+     *         if either sequence lacks the joint
+     */
+    public static List<int[]> dtwWithAlignmentPath(PoseSequence user, PoseSequence pro, String joint) {
+        return dtwWithAlignmentPath(user, pro, joint, WarpingWindow.NONE);
+    }
+
+    /**
+     * Calculates the DTW alignment path for one joint of two pose sequences,
+     * restricted to the given warping window.
+     *
+     * @param user   User pose sequence
+     * @param pro    Professional pose sequence
+     * @param joint  Joint name (e.g. shoulder_left)
+     * @param window Global path constraint
+     * @return Pairs of {user frame, pro frame} frame numbers along the path
+     */
+    public static List<int[]> dtwWithAlignmentPath(PoseSequence user, PoseSequence pro, String joint,
+            WarpingWindow window) {
+        return dtwWithAlignmentPath(user, pro, joint, new ExactDtw(window));
+    }
+
+    /**
+     * Aligns two sets of keypoints with the given DTW implementation and returns
+     * the path with the distance of every aligned pair of frames.
+     *
+     * @param userPartData Map of user frames and coordinates
+     * @param proPartData  Map of professional frames and coordinates
+     * @param engine       DTW implementation
+     * @return The path, its local costs and cumulative cost
+     */
+    public static AlignmentResult align(Map<Integer, float[]> userPartData, Map<Integer, float[]> proPartData,
+            DtwEngine engine) {
+        int[] userFrames = sortedKeys(userPartData);
+        int[] proFrames = sortedKeys(proPartData);
+
+        return engine.align(pack(userPartData, userFrames), userFrames, pack(proPartData, proFrames), proFrames);
+    }
+
+    /**
+     * Calculates the alignment path for one joint of two pose sequences with the
+     * given DTW implementation.
+     *
+     * @param user   User pose sequence
+     * @param pro    Professional pose sequence
+     * @param joint  Joint name (e.g. shoulder_left)
+     * @param engine DTW implementation
+     * @return Pairs of {user frame, pro frame} frame numbers along the path
+     */
+    public static List<int[]> dtwWithAlignmentPath(PoseSequence user, PoseSequence pro, String joint,
+            DtwEngine engine) {
+        int userJoint = user.getJointIndex(joint);
+        int proJoint = pro.getJointIndex(joint);
+        if (userJoint < 0 || proJoint < 0) {
+            return new ArrayList<>();
+        }
+
+        return engine.dtwWithAlignmentPath(user.packJoint(userJoint), frameNumbers(user, userJoint),
+                pro.packJoint(proJoint), frameNumbers(pro, proJoint));
+    }
+
+    /**
+     * Aligns one joint of two pose sequences with the given DTW implementation
+     * and returns the path with the distance of every aligned pair of frames.
+     *
+     * @param user   User pose sequence
+     * @param pro    Professional pose sequence
+     * @param joint  Joint name (e.g. shoulder_left)
+     * @param engine DTW implementation
+     * @return The path, its local costs and cumulative cost; empty if either
+     *         sequence lacks the joint
+     */
+    public static AlignmentResult align(PoseSequence user, PoseSequence pro, String joint, DtwEngine engine) {
+        int userJoint = user.getJointIndex(joint);
+        int proJoint = pro.getJointIndex(joint);
+        if (userJoint < 0 || proJoint < 0) {
+            return new AlignmentResult(new ArrayList<>(), new float[0], 0);
+        }
+
+        return engine.align(user.packJoint(userJoint), frameNumbers(user, userJoint), pro.packJoint(proJoint),
+                frameNumbers(pro, proJoint));
+    }
+
+    /**
+     * Aligns one joint of a user sequence with a compiled professional reference,
+     * reusing the reference's packed trajectory and frame numbers.
+     *
+     * @param user   User pose sequence
+     * @param pro    Compiled professional reference
+     * @param joint  Joint name (e.g. shoulder_left)
+     * @param engine DTW implementation
+     * @return The path, its local costs and cumulative cost; empty if the joint
+     *         is missing or not scored
+     */
+    public static AlignmentResult align(PoseSequence user, ReferenceProfile pro, String joint, DtwEngine engine) {
+        int userJoint = user.getJointIndex(joint);
+        float[] proPacked = pro.packed(joint);
+        if (userJoint < 0 || proPacked == null) {
+            return new AlignmentResult(new ArrayList<>(), new float[0], 0);
+        }
+
+        return engine.align(user.packJoint(userJoint), frameNumbers(user, userJoint), proPacked, pro.frames(joint));
+    }
+
+    /**
+     * Calculates the DTW alignment path between two packed joint trajectories.
+     *
+     * @param user       Packed user coordinates (x, y, z per frame)
+     * @param userFrames Frame number of each packed user frame
+     * @param pro        Packed professional coordinates (x, y, z per frame)
+     * @param proFrames  Frame number of each packed professional frame
+     * @param window     Global path constraint
+     * @return Pairs of {user frame, pro frame} along the path
+     */
+    public static List<int[]> dtwWithAlignmentPath(float[] user, int[] userFrames, float[] pro, int[] proFrames,
+            WarpingWindow window) {
+        return alignmentPath(LocalCost.joint(user, pro), userFrames, proFrames, window);
+    }
+
+    /**
+     * Alignment path kernel shared by the single and multi joint alignments.
+     * Switches to the low-memory solver above LINEAR_SPACE_THRESHOLD cells.
+     *
+     * @param localCost  Cost of each cell
+     * @param userFrames Frame number of each row
+     * @param proFrames  Frame number of each column
+     * @param window     Global path constraint
+     * @return Pairs of {user frame, pro frame} along the path
+     */
+    static List<int[]> alignmentPath(LocalCost localCost, int[] userFrames, int[] proFrames,
+            WarpingWindow window) {
+        int n = userFrames.length;
+        int m = proFrames.length;
+
+        if ((long) n * m > LINEAR_SPACE_THRESHOLD) {
+            return HirschbergAlignment.alignmentPath(localCost, userFrames, proFrames, window);
+        }
 
         float[][] dtwMatrix = new float[n + 1][m + 1];
         int[][] pathMatrix = new int[n][m];
+        float[] costs = new float[m];
 
         for (int i = 0; i <= n; i++) {
             Arrays.fill(dtwMatrix[i], Float.MAX_VALUE);
@@ -129,15 +777,14 @@ public class DynamicTimeWarping {
         dtwMatrix[0][0] = 0;
 
         for (int i = 1; i <= n; i++) {
-            for (int j = 1; j <= m; j++) {
-                float[] userCoords = userPartData.get(userKeys.get(i - 1));
-                float[] proCoords = proPartData.get(proKeys.get(j - 1));
-
-                float cost = 0;
-                if (userCoords != null && proCoords != null) {
-                    cost = poseDataProcessing.calculateDistance(userCoords, proCoords);
-                }
+            int lower = window.lower(i, n, m);
+            int upper = window.upper(i, n, m);
+            if (lower <= upper) {
+                localCost.row(i - 1, lower - 1, upper - 1, costs);
+            }
 
+            for (int j = lower; j <= upper; j++) {
+                float cost = costs[j - 1];
                 float minCost = Math.min(
                         Math.min(dtwMatrix[i - 1][j], dtwMatrix[i][j - 1]),
                         dtwMatrix[i - 1][j - 1]);
@@ -157,7 +804,7 @@ public class DynamicTimeWarping {
         int i = n - 1, j = m - 1;
 
         while (i >= 0 && j >= 0) {
-            alignmentPath.add(new int[] { userKeys.get(i), proKeys.get(j) });
+            alignmentPath.add(new int[] { userFrames[i], proFrames[j] });
             if (pathMatrix[i][j] == 1) {
                 i--;
             } else if (pathMatrix[i][j] == 2) {
@@ -172,22 +819,103 @@ public class DynamicTimeWarping {
         return alignmentPath;
     }
 
+    /**
+     * Calculates the DTW alignment path with a divide-and-conquer solver that
+     * only keeps O(m log n) cost values in memory and returns the same path as
+     * the full matrix. dtwWithAlignmentPath uses it automatically above
+     * LINEAR_SPACE_THRESHOLD cells; callers may also request it directly.
+     *
+     * @param user       Packed user coordinates (x, y, z per frame)
+     * @param userFrames Frame number of each packed user frame
+     * @param pro        Packed professional coordinates (x, y, z per frame)
+     * @param proFrames  Frame number of each packed professional frame
+     * @param window     Global path constraint
+     * @return Pairs of {user frame, pro frame} along the path
+     */
+    public static List<int[]> linearSpaceAlignmentPath(float[] user, int[] userFrames, float[] pro,
+            int[] proFrames, WarpingWindow window) {
+        return HirschbergAlignment.alignmentPath(LocalCost.joint(user, pro), userFrames, proFrames, window);
+    }
+
+    /**
+     * Returns the two rolling DTW rows and the local cost row of the calling
+     * thread, growing them if they are shorter than the requested length.
+     */
+    private static float[][] rowBuffers(int length) {
+        float[][] rows = ROW_BUFFERS.get();
+        if (rows[0].length < length) {
+            rows[0] = new float[length];
+            rows[1] = new float[length];
+            rows[2] = new float[length];
+        }
+        return rows;
+    }
+
+    /**
+     * Euclidean distance between two packed xyz points.
+     */
+    static float distance(float[] a, int aOffset, float[] b, int bOffset) {
+        float dx = a[aOffset] - b[bOffset];
+        float dy = a[aOffset + 1] - b[bOffset + 1];
+        float dz = a[aOffset + 2] - b[bOffset + 2];
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    /**
+     * @return Frame numbers of the map in ascending order, leaving out frames
+     *         mapped to null, which have no coordinates to align (like the
+     *         missing frames of a PoseSequence)
+     */
+    private static int[] sortedKeys(Map<Integer, float[]> partData) {
+        int[] frames = new int[partData.size()];
+        int k = 0;
+        for (Map.Entry<Integer, float[]> entry : partData.entrySet()) {
+            if (entry.getValue() != null) {
+                frames[k++] = entry.getKey();
+            }
+        }
+        if (k < frames.length) {
+            frames = Arrays.copyOf(frames, k);
+        }
+        MergeSort.mergeSort(frames, true); // Sort in ascending order
+        return frames;
+    }
+
+    /**
+     * Packs map coordinates into a contiguous xyz array in the given frame order.
+     */
+    private static float[] pack(Map<Integer, float[]> partData, int[] frames) {
+        float[] packed = new float[frames.length * 3];
+        for (int k = 0; k < frames.length; k++) {
+            System.arraycopy(partData.get(frames[k]), 0, packed, k * 3, 3);
+        }
+        return packed;
+    }
+
+    /**
+     * @return Absolute frame numbers of the captured frames of a sequence joint
+     */
+    private static int[] frameNumbers(PoseSequence sequence, int joint) {
+        int[] frames = sequence.getPresentFrames(joint);
+        for (int k = 0; k < frames.length; k++) {
+            frames[k] += sequence.getFirstFrame();
+        }
+        return frames;
+    }
+
     /**
      * Helper method to check for only body parts needed
-     * 
+     *
      * @param bodyPart Current body part
      * @return True if it is needed, False otherwise
      */
-    private static boolean isPartNeeded(String bodyPart) {
-        return bodyPart.equalsIgnoreCase("shoulder_left") || bodyPart.equalsIgnoreCase("shoulder_right")
-                || bodyPart.equalsIgnoreCase("elbow_left") || bodyPart.equalsIgnoreCase("elbow_right")
-                || bodyPart.equalsIgnoreCase("wrist_left") || bodyPart.equalsIgnoreCase("wrist_right")
-                || bodyPart.equalsIgnoreCase("hip_left") || bodyPart.equalsIgnoreCase("hip_right")
-                || bodyPart.equalsIgnoreCase("knee_left") || bodyPart.equalsIgnoreCase("knee_right")
-                || bodyPart.equalsIgnoreCase("ankle_left") || bodyPart.equalsIgnoreCase("ankle_right")
-                || bodyPart.equalsIgnoreCase("heel_left") || bodyPart.equalsIgnoreCase("heel_right")
-                || bodyPart.equalsIgnoreCase("foot_index_left") || bodyPart.equalsIgnoreCase("foot_index_right")
-                || bodyPart.equalsIgnoreCase("nose");
+    static boolean isPartNeeded(String bodyPart) {
+        for (String joint : SCORED_JOINTS) {
+            if (joint.equalsIgnoreCase(bodyPart)) {
+                return true;
+            }
+        }
+        return false;
     }
 
 }
@@ -0,0 +1,55 @@
+package com.instructor.algorithms;
+
+import java.util.List;
+
+/**
+ * Exact DTW, optionally restricted to a warping window.
+ */
+public class ExactDtw implements DtwEngine {
+    private final WarpingWindow window;
+
+    public ExactDtw() {
+        this(WarpingWindow.NONE);
+    }
+
+    /**
+     * @param window Global path constraint
+     */
+    public ExactDtw(WarpingWindow window) {
+        this.window = window;
+    }
+
+    public WarpingWindow getWindow() {
+        return window;
+    }
+
+    @Override
+    public float dtw(float[] user, float[] pro) {
+        return DynamicTimeWarping.dtw(user, pro, window);
+    }
+
+    @Override
+    public float dtw(float[] user, float[] pro, float cutoff) {
+        return DynamicTimeWarping.dtw(user, pro, window, cutoff);
+    }
+
+    @Override
+    public List<int[]> dtwWithAlignmentPath(float[] user, int[] userFrames, float[] pro, int[] proFrames) {
+        return DynamicTimeWarping.dtwWithAlignmentPath(user, userFrames, pro, proFrames, window);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof ExactDtw && window.equals(((ExactDtw) o).window);
+    }
+
+    @Override
+    public int hashCode() {
+        return window.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "Exact(" + window + ")";
+    }
+}
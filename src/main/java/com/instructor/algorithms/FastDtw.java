@@ -0,0 +1,261 @@
+package com.instructor.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Approximate multi-resolution DTW (FastDTW, Salvador and Chan).
+ *
+ * Both trajectories are repeatedly halved by averaging adjacent frames until
+ * they are short, the coarsest pair is aligned exactly, and the path is then
+ * projected to each finer resolution and refined inside a corridor of
+ * {@code radius} frames around it. Time and memory are O(n * radius) instead
+ * of O(n * m); a larger radius gets closer to exact DTW.
+ */
+public class FastDtw implements DtwEngine {
+    private final int radius;
+
+    /**
+     * @param radius Number of extra frames searched on each side of the
+     *               projected path at every resolution
+     */
+    public FastDtw(int radius) {
+        if (radius < 0) {
+            throw new IllegalArgumentException("Radius must not be negative: " + radius);
+        }
+        this.radius = radius;
+    }
+
+    public int getRadius() {
+        return radius;
+    }
+
+    @Override
+    public float dtw(float[] user, float[] pro) {
+        int n = user.length / 3;
+        int m = pro.length / 3;
+        if (n == 0 || m == 0) {
+            return DynamicTimeWarping.dtw(user, pro);
+        }
+        return warp(pyramid(user), pyramid(pro), 0).cost / Math.max(n, m);
+    }
+
+    /**
+     * Same as dtw(user, pro) on trajectories already halved with pyramid(), e.g.
+     * the precompiled levels of a ReferenceProfile.
+     *
+     * @param user Pyramid of the packed user coordinates
+     * @param pro  Pyramid of the packed professional coordinates
+     * @return The approximate DTW distance normalized by max(n, m)
+     */
+    float dtw(float[][] user, float[][] pro) {
+        int n = user[0].length / 3;
+        int m = pro[0].length / 3;
+        if (n == 0 || m == 0) {
+            return DynamicTimeWarping.dtw(user[0], pro[0]);
+        }
+        return warp(user, pro, 0).cost / Math.max(n, m);
+    }
+
+    @Override
+    public List<int[]> dtwWithAlignmentPath(float[] user, int[] userFrames, float[] pro, int[] proFrames) {
+        List<int[]> alignmentPath = new ArrayList<>();
+        if (userFrames.length == 0 || proFrames.length == 0) {
+            return alignmentPath;
+        }
+
+        int[] path = warp(pyramid(user), pyramid(pro), 0).path;
+        for (int k = 0; k < path.length; k += 2) {
+            alignmentPath.add(new int[] { userFrames[path[k]], proFrames[path[k + 1]] });
+        }
+        return alignmentPath;
+    }
+
+    /**
+     * Aligns two non-empty trajectories at the given level of their pyramids.
+     */
+    private Warp warp(float[][] xs, float[][] ys, int level) {
+        float[] x = xs[level];
+        float[] y = ys[level];
+        int n = x.length / 3;
+        int m = y.length / 3;
+        int[] lower = new int[n];
+        int[] upper = new int[n];
+
+        int minSize = radius + 2;
+        if (n <= minSize || m <= minSize) {
+            // Short enough to align exactly
+            Arrays.fill(upper, m - 1);
+        } else {
+            Warp coarse = warp(xs, ys, level + 1);
+            projectWindow(coarse.path, n, m, lower, upper);
+        }
+        return windowedWarp(x, y, lower, upper);
+    }
+
+    /**
+     * Projects a path found at half resolution onto the full resolution and
+     * widens it by the radius. The result is a column range per row.
+     */
+    private void projectWindow(int[] coarsePath, int n, int m, int[] lower, int[] upper) {
+        Arrays.fill(lower, Integer.MAX_VALUE);
+        Arrays.fill(upper, -1);
+
+        // Each coarse cell covers a 2 x 2 block of fine cells
+        for (int k = 0; k < coarsePath.length; k += 2) {
+            int row = coarsePath[k] * 2;
+            int col = coarsePath[k + 1] * 2;
+            for (int i = row; i <= Math.min(row + 1, n - 1); i++) {
+                lower[i] = Math.min(lower[i], col);
+                upper[i] = Math.max(upper[i], Math.min(col + 1, m - 1));
+            }
+        }
+
+        // Both bounds are non-decreasing along the rows, so widening by the radius
+        // in both directions only needs the bounds radius rows away
+        int[] projectedLower = lower.clone();
+        int[] projectedUpper = upper.clone();
+        for (int i = 0; i < n; i++) {
+            lower[i] = Math.max(0, projectedLower[Math.max(0, i - radius)] - radius);
+            upper[i] = Math.min(m - 1, projectedUpper[Math.min(n - 1, i + radius)] + radius);
+        }
+    }
+
+    /**
+     * Exact DTW restricted to a column range per row, storing only the cells
+     * inside the ranges.
+     */
+    private static Warp windowedWarp(float[] x, float[] y, int[] lower, int[] upper) {
+        int n = lower.length;
+        int[] offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + upper[i] - lower[i] + 1;
+        }
+
+        float[] cost = new float[offsets[n]];
+        for (int i = 0; i < n; i++) {
+            for (int j = lower[i]; j <= upper[i]; j++) {
+                float best;
+                if (i == 0 && j == 0) {
+                    best = 0;
+                } else {
+                    best = Math.min(Math.min(cell(cost, offsets, lower, upper, i - 1, j),
+                            cell(cost, offsets, lower, upper, i, j - 1)),
+                            cell(cost, offsets, lower, upper, i - 1, j - 1));
+                }
+                cost[offsets[i] + j - lower[i]] = DynamicTimeWarping.distance(x, i * 3, y, j * 3) + best;
+            }
+        }
+
+        // Trace back from the last cell, preferring the diagonal on ties
+        int m = upper[n - 1] + 1;
+        List<int[]> reversed = new ArrayList<>();
+        int i = n - 1, j = m - 1;
+        while (true) {
+            reversed.add(new int[] { i, j });
+            if (i == 0 && j == 0) {
+                break;
+            }
+            float diagonal = cell(cost, offsets, lower, upper, i - 1, j - 1);
+            float vertical = cell(cost, offsets, lower, upper, i - 1, j);
+            float horizontal = cell(cost, offsets, lower, upper, i, j - 1);
+            if (diagonal <= vertical && diagonal <= horizontal) {
+                i--;
+                j--;
+            } else if (vertical <= horizontal) {
+                i--;
+            } else {
+                j--;
+            }
+        }
+
+        int[] path = new int[reversed.size() * 2];
+        for (int k = 0; k < reversed.size(); k++) {
+            int[] step = reversed.get(reversed.size() - 1 - k);
+            path[k * 2] = step[0];
+            path[k * 2 + 1] = step[1];
+        }
+        return new Warp(path, cost[offsets[n - 1] + (m - 1) - lower[n - 1]]);
+    }
+
+    /**
+     * Cumulative cost of a cell, or infinity if it lies outside the window.
+     */
+    private static float cell(float[] cost, int[] offsets, int[] lower, int[] upper, int i, int j) {
+        if (i < 0 || j < lower[i] || j > upper[i]) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return cost[offsets[i] + j - lower[i]];
+    }
+
+    /**
+     * Every resolution of a packed trajectory, halved with coarsen() down to a
+     * single frame. Level 0 is the trajectory itself.
+     *
+     * @param packed Packed coordinates (x, y, z per frame)
+     * @return Packed coordinates of each level, finest first
+     */
+    static float[][] pyramid(float[] packed) {
+        List<float[]> levels = new ArrayList<>();
+        levels.add(packed);
+        while (packed.length > 3) {
+            packed = coarsen(packed);
+            levels.add(packed);
+        }
+        return levels.toArray(new float[0][]);
+    }
+
+    /**
+     * Halves a packed trajectory by averaging each pair of adjacent frames. An odd
+     * last frame is kept as is.
+     *
+     * @param packed Packed coordinates (x, y, z per frame)
+     * @return Packed coordinates with ceil(n / 2) frames
+     */
+    static float[] coarsen(float[] packed) {
+        int n = packed.length / 3;
+        int half = (n + 1) / 2;
+        float[] coarse = new float[half * 3];
+
+        for (int k = 0; k < half; k++) {
+            int a = k * 6;
+            if (2 * k + 1 < n) {
+                coarse[k * 3] = (packed[a] + packed[a + 3]) / 2;
+                coarse[k * 3 + 1] = (packed[a + 1] + packed[a + 4]) / 2;
+                coarse[k * 3 + 2] = (packed[a + 2] + packed[a + 5]) / 2;
+            } else {
+                System.arraycopy(packed, a, coarse, k * 3, 3);
+            }
+        }
+        return coarse;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof FastDtw && radius == ((FastDtw) o).radius;
+    }
+
+    @Override
+    public int hashCode() {
+        return radius;
+    }
+
+    @Override
+    public String toString() {
+        return "FastDTW(radius " + radius + ")";
+    }
+
+    /**
+     * Alignment path as flattened (i, j) index pairs plus its cumulative cost.
+     */
+    private static class Warp {
+        final int[] path;
+        final float cost;
+
+        Warp(int[] path, float cost) {
+            this.path = path;
+            this.cost = cost;
+        }
+    }
+}
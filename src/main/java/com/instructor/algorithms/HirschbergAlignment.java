@@ -0,0 +1,160 @@
+package com.instructor.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Low-memory recovery of the DTW alignment path, returning exactly the path of
+ * the full-matrix version.
+ *
+ * Like Hirschberg's algorithm, the rows are split in half recursively and
+ * recomputed instead of stored. Every row is computed from the previous row
+ * of the whole matrix, with the same recurrence as the full-matrix version,
+ * so the cumulative costs are bit for bit the same and ties are broken the
+ * same way (vertical, then horizontal, then diagonal). A forward pass to the
+ * middle row gives the row the upper half starts from; the upper half is
+ * traced back first and tells where the path enters the lower half. Blocks
+ * of rows up to BLOCK_CELLS cells are traced with their costs in memory.
+ *
+ * Memory is one cost row per level of the recursion plus one block, O(m log n);
+ * every level computes half the rows once more, so time is O(n * m * log n)
+ * with a small constant.
+ */
+class HirschbergAlignment {
+    // Row blocks up to this many cells are traced with all their costs in memory
+    private static final int BLOCK_CELLS = 1 << 20;
+
+    private final LocalCost localCost;
+    private final int[] userFrames;
+    private final int[] proFrames;
+    private final WarpingWindow window;
+    private final int n;
+    private final int m;
+    private final List<int[]> path = new ArrayList<>();
+
+    // Local costs of the row being processed, indexed by column
+    private final float[] costs;
+
+    // Cumulative cost rows of the block being traced
+    private final float[][] block;
+
+    private HirschbergAlignment(LocalCost localCost, int[] userFrames, int[] proFrames, WarpingWindow window) {
+        this.localCost = localCost;
+        this.userFrames = userFrames;
+        this.proFrames = proFrames;
+        this.window = window;
+        this.n = userFrames.length;
+        this.m = proFrames.length;
+        this.costs = new float[m];
+        this.block = new float[Math.max(1, Math.min(n, BLOCK_CELLS / (m + 1)))][];
+    }
+
+    /**
+     * Calculates the DTW alignment path of the full-matrix version in O(m log n)
+     * space.
+     *
+     * @param localCost  Cost of each cell
+     * @param userFrames Frame number of each row
+     * @param proFrames  Frame number of each column
+     * @param window     Global path constraint
+     * @return Pairs of {user frame, pro frame} along the path
+     */
+    static List<int[]> alignmentPath(LocalCost localCost, int[] userFrames, int[] proFrames, WarpingWindow window) {
+        HirschbergAlignment alignment = new HirschbergAlignment(localCost, userFrames, proFrames, window);
+        if (alignment.n > 0 && alignment.m > 0) {
+            // Row 0 of the full matrix
+            float[] start = new float[alignment.m + 1];
+            Arrays.fill(start, Float.MAX_VALUE);
+            start[0] = 0;
+
+            alignment.trace(0, alignment.n - 1, start, alignment.m - 1);
+            Collections.reverse(alignment.path);
+        }
+        return alignment.path;
+    }
+
+    /**
+     * Traces the path back through rows r0..r1, appending its cells from the
+     * end.
+     *
+     * @param before Cumulative costs of the row above r0, indexed like the full
+     *               matrix (column 0 is the border)
+     * @param end    Column of the path's last cell in row r1
+     * @return Column of the path's last cell in the row above r0, -1 once the
+     *         path is complete
+     */
+    private int trace(int r0, int r1, float[] before, int end) {
+        int rows = r1 - r0 + 1;
+        if (rows <= block.length) {
+            return traceBlock(r0, r1, before, end);
+        }
+
+        int mid = (r0 + r1) / 2;
+        float[] previous = before;
+        float[] current = new float[m + 1];
+        float[] other = new float[m + 1];
+        for (int i = r0; i <= mid; i++) {
+            fillRow(i, previous, current);
+            previous = current;
+            current = other;
+            other = previous;
+        }
+
+        int exit = trace(mid + 1, r1, previous, end);
+        return trace(r0, mid, before, exit);
+    }
+
+    /**
+     * Computes the cumulative costs of a block of rows and traces the path back
+     * through it, following the full-matrix version step by step.
+     */
+    private int traceBlock(int r0, int r1, float[] before, int end) {
+        for (int a = 0; a <= r1 - r0; a++) {
+            if (block[a] == null) {
+                block[a] = new float[m + 1];
+            }
+            fillRow(r0 + a, a == 0 ? before : block[a - 1], block[a]);
+        }
+
+        int i = r1;
+        int j = end;
+        while (i >= r0 && j >= 0) {
+            path.add(new int[] { userFrames[i], proFrames[j] });
+            float[] above = i == r0 ? before : block[i - r0 - 1];
+            float[] row = block[i - r0];
+
+            // Matrix indices are 1-based; cells outside the window step diagonally
+            boolean inWindow = j + 1 >= window.lower(i + 1, n, m) && j + 1 <= window.upper(i + 1, n, m);
+            float minCost = Math.min(Math.min(above[j + 1], row[j]), above[j]);
+            if (inWindow && minCost == above[j + 1]) {
+                i--; // Vertical
+            } else if (inWindow && minCost == row[j]) {
+                j--; // Horizontal
+            } else {
+                i--; // Diagonal
+                j--;
+            }
+        }
+        return j;
+    }
+
+    /**
+     * Fills {@code current} with the cumulative costs of row i from those of the
+     * row above, exactly as the full-matrix version fills its row i + 1.
+     */
+    private void fillRow(int i, float[] previous, float[] current) {
+        Arrays.fill(current, Float.MAX_VALUE);
+        int lower = window.lower(i + 1, n, m);
+        int upper = window.upper(i + 1, n, m);
+        if (lower <= upper) {
+            localCost.row(i, lower - 1, upper - 1, costs);
+        }
+
+        for (int j = lower; j <= upper; j++) {
+            float minCost = Math.min(Math.min(previous[j], current[j - 1]), previous[j - 1]);
+            current[j] = costs[j - 1] + minCost;
+        }
+    }
+}
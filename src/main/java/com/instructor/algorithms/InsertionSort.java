@@ -30,4 +30,52 @@ public class InsertionSort {
             list.set(j + 1, key); // Insert the element
         }
     }
+
+    /**
+     * Sorts a portion of an array of ints in-place using the insertion sort
+     * algorithm.
+     *
+     * @param array     The array to be sorted.
+     * @param left      The starting index of the subarray to be sorted.
+     * @param right     The ending index of the subarray to be sorted.
+     * @param ascending True if the array should be sorted in ascending order,
+     *                  false for descending order.
+     */
+    public static void insertionSort(int[] array, int left, int right, boolean ascending) {
+        for (int i = left + 1; i <= right; i++) {
+            int key = array[i]; // Element to be inserted
+            int j = i - 1;
+
+            while (j >= left && (ascending ? array[j] > key : array[j] < key)) {
+                array[j + 1] = array[j]; // Shift elements to the right
+                j--;
+            }
+
+            array[j + 1] = key; // Insert the element
+        }
+    }
+
+    /**
+     * Sorts a portion of an array of longs in-place using the insertion sort
+     * algorithm.
+     *
+     * @param array     The array to be sorted.
+     * @param left      The starting index of the subarray to be sorted.
+     * @param right     The ending index of the subarray to be sorted.
+     * @param ascending True if the array should be sorted in ascending order,
+     *                  false for descending order.
+     */
+    public static void insertionSort(long[] array, int left, int right, boolean ascending) {
+        for (int i = left + 1; i <= right; i++) {
+            long key = array[i]; // Element to be inserted
+            int j = i - 1;
+
+            while (j >= left && (ascending ? array[j] > key : array[j] < key)) {
+                array[j + 1] = array[j]; // Shift elements to the right
+                j--;
+            }
+
+            array[j + 1] = key; // Insert the element
+        }
+    }
 }
@@ -0,0 +1,138 @@
+package com.instructor.algorithms;
+
+import java.util.Arrays;
+
+/**
+ * Multi-joint local cost of LocalCost.joints, computed one joint at a time.
+ *
+ * The professional frames are split once into x, y and z columns per joint,
+ * with missing coordinates replaced by 0 and a weight column that is 0 where
+ * the joint is missing. A row then accumulates the weighted squared distances
+ * and the weight sums of all cells joint after joint, each a unit-stride loop
+ * without branches the JIT compiles to SIMD instructions, and takes the square
+ * roots in a final pass. Per cell the terms are added in the same order as a
+ * joint-by-joint loop, so the costs are bit-identical to it.
+ */
+final class JointsCost implements LocalCost {
+    // Weight sums of the row being computed, reused by every call on a thread
+    private static final ThreadLocal<float[]> WEIGHT_SUMS = ThreadLocal.withInitial(() -> new float[0]);
+
+    private final float[] user;
+    private final float[] weights;
+    private final int stride;
+
+    // Professional coordinates per joint and frame, 0 where the joint is missing
+    private final float[][] xs;
+    private final float[][] ys;
+    private final float[][] zs;
+
+    // Weight of each joint per frame, 0 where it is missing; null if none is
+    private final float[][] proWeights;
+
+    /**
+     * @param user    Packed user frames (joints x xyz per frame)
+     * @param pro     Packed professional frames (joints x xyz per frame)
+     * @param weights Weight of each joint
+     */
+    JointsCost(float[] user, float[] pro, float[] weights) {
+        this.user = user;
+        this.weights = weights;
+        this.stride = weights.length * 3;
+
+        int joints = weights.length;
+        int m = stride == 0 ? 0 : pro.length / stride;
+        xs = new float[joints][m];
+        ys = new float[joints][m];
+        zs = new float[joints][m];
+        float[][] present = new float[joints][m];
+        boolean missing = false;
+        for (int k = 0; k < joints; k++) {
+            for (int j = 0; j < m; j++) {
+                int p = j * stride + k * 3;
+                float x = pro[p];
+                float y = pro[p + 1];
+                float z = pro[p + 2];
+                float squared = x * x + y * y + z * z;
+                // NaN compares unequal to itself: the joint is missing in this frame
+                if (squared == squared) {
+                    xs[k][j] = x;
+                    ys[k][j] = y;
+                    zs[k][j] = z;
+                    present[k][j] = weights[k];
+                } else {
+                    missing = true;
+                }
+            }
+        }
+        proWeights = missing ? present : null;
+    }
+
+    @Override
+    public void row(int i, int from, int to, float[] out) {
+        Arrays.fill(out, from, to + 1, 0);
+        float[] weightSums = null;
+        if (proWeights != null) {
+            weightSums = weightSums(to + 1);
+            Arrays.fill(weightSums, from, to + 1, 0);
+        }
+
+        int u = i * stride;
+        float weightSum = 0; // Of the joints present in the user frame
+        for (int k = 0; k < weights.length; k++) {
+            float x = user[u + k * 3];
+            float y = user[u + k * 3 + 1];
+            float z = user[u + k * 3 + 2];
+            if (x != x || y != y || z != z) {
+                continue; // Missing in the user frame
+            }
+            weightSum += weights[k];
+
+            float[] px = xs[k];
+            float[] py = ys[k];
+            float[] pz = zs[k];
+            if (proWeights == null) {
+                float weight = weights[k];
+                for (int j = from; j <= to; j++) {
+                    float dx = x - px[j];
+                    float dy = y - py[j];
+                    float dz = z - pz[j];
+                    out[j] += weight * (dx * dx + dy * dy + dz * dz);
+                }
+            } else {
+                float[] weight = proWeights[k];
+                for (int j = from; j <= to; j++) {
+                    float dx = x - px[j];
+                    float dy = y - py[j];
+                    float dz = z - pz[j];
+                    out[j] += weight[j] * (dx * dx + dy * dy + dz * dz);
+                    weightSums[j] += weight[j];
+                }
+            }
+        }
+
+        if (proWeights == null) {
+            if (weightSum > 0) {
+                for (int j = from; j <= to; j++) {
+                    out[j] = (float) Math.sqrt(out[j] / weightSum);
+                }
+            }
+        } else {
+            for (int j = from; j <= to; j++) {
+                out[j] = weightSums[j] > 0 ? (float) Math.sqrt(out[j] / weightSums[j]) : 0;
+            }
+        }
+    }
+
+    /**
+     * Returns the weight sum row of the calling thread, growing it if it is
+     * shorter than the requested length.
+     */
+    private static float[] weightSums(int length) {
+        float[] sums = WEIGHT_SUMS.get();
+        if (sums.length < length) {
+            sums = new float[length];
+            WEIGHT_SUMS.set(sums);
+        }
+        return sums;
+    }
+}
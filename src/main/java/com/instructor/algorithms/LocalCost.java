@@ -0,0 +1,63 @@
+package com.instructor.algorithms;
+
+/**
+ * Local (per cell) cost of a DTW matrix, produced one row segment at a time so
+ * the kernels can share the same dynamic programming code for a single joint
+ * and for several joints at once.
+ */
+interface LocalCost {
+
+    /**
+     * Writes the local cost of cells (i, from) .. (i, to) into out[from .. to].
+     * Indices are 0-based user and professional frame positions.
+     */
+    void row(int i, int from, int to, float[] out);
+
+    /**
+     * Euclidean distance between one packed joint trajectory of each sequence.
+     * The professional coordinates are split into x, y and z columns once, so a
+     * row is a unit-stride loop the JIT compiles to SIMD instructions.
+     *
+     * @param user Packed user coordinates (x, y, z per frame)
+     * @param pro  Packed professional coordinates (x, y, z per frame)
+     */
+    static LocalCost joint(float[] user, float[] pro) {
+        int m = pro.length / 3;
+        float[] xs = new float[m];
+        float[] ys = new float[m];
+        float[] zs = new float[m];
+        for (int j = 0; j < m; j++) {
+            xs[j] = pro[j * 3];
+            ys[j] = pro[j * 3 + 1];
+            zs[j] = pro[j * 3 + 2];
+        }
+
+        return (i, from, to, out) -> {
+            float x = user[i * 3];
+            float y = user[i * 3 + 1];
+            float z = user[i * 3 + 2];
+            for (int j = from; j <= to; j++) {
+                float dx = x - xs[j];
+                float dy = y - ys[j];
+                float dz = z - zs[j];
+                out[j] = (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+            }
+        };
+    }
+
+    /**
+     * Distance between whole poses: the weighted root mean square of the
+     * per-joint Euclidean distances, i.e. one Euclidean distance over all
+     * selected coordinates with a single square root per cell. Joints missing
+     * (NaN) in either frame are left out of the mean; a pair of frames with no
+     * joint in common costs 0. Computed a joint at a time over the whole row, see
+     * JointsCost.
+     *
+     * @param user    Packed user frames (joints x xyz per frame)
+     * @param pro     Packed professional frames (joints x xyz per frame)
+     * @param weights Weight of each joint
+     */
+    static LocalCost joints(float[] user, float[] pro, float[] weights) {
+        return new JointsCost(user, pro, weights);
+    }
+}
@@ -0,0 +1,119 @@
+package com.instructor.algorithms;
+
+/**
+ * Cheap lower bounds of the normalized single-joint DTW distance, used to
+ * discard candidates before running DTW.
+ */
+class LowerBounds {
+
+    private LowerBounds() {
+    }
+
+    /**
+     * LB_Kim: every path starts at the first pair of frames and ends at the last
+     * pair, so their local costs alone bound the distance.
+     *
+     * @param user Packed user coordinates, at least one frame
+     * @param pro  Packed professional coordinates, at least one frame
+     * @return Lower bound of the normalized DTW distance
+     */
+    static float kim(float[] user, float[] pro) {
+        int n = user.length / 3;
+        int m = pro.length / 3;
+        float bound = DynamicTimeWarping.distance(user, 0, pro, 0);
+        if (n > 1 || m > 1) {
+            bound += DynamicTimeWarping.distance(user, (n - 1) * 3, pro, (m - 1) * 3);
+        }
+        return bound / Math.max(n, m);
+    }
+
+    /**
+     * Bounding box of the professional frames each user frame may be matched
+     * with under the window. Both window bounds are non-decreasing, so the boxes
+     * of all rows come from sliding minimum and maximum deques in O(n + m).
+     *
+     * @param pro    Packed professional coordinates
+     * @param n      Number of user frames
+     * @param window Global path constraint
+     * @return Per user frame: min x, min y, min z, max x, max y, max z; NaN for
+     *         rows the window leaves empty
+     */
+    static float[] envelope(float[] pro, int n, WarpingWindow window) {
+        int m = pro.length / 3;
+        float[] envelope = new float[n * 6];
+        int[] from = new int[n];
+        int[] to = new int[n];
+        for (int i = 0; i < n; i++) {
+            from[i] = window.lower(i + 1, n, m) - 1;
+            to[i] = window.upper(i + 1, n, m) - 1;
+        }
+
+        int[] minQueue = new int[m];
+        int[] maxQueue = new int[m];
+        for (int axis = 0; axis < 3; axis++) {
+            int minHead = 0, minTail = 0;
+            int maxHead = 0, maxTail = 0;
+            int added = 0;
+
+            for (int i = 0; i < n; i++) {
+                if (from[i] > to[i]) {
+                    envelope[i * 6 + axis] = Float.NaN;
+                    envelope[i * 6 + 3 + axis] = Float.NaN;
+                    continue;
+                }
+
+                // Push the columns entering the window
+                for (; added <= to[i]; added++) {
+                    float value = pro[added * 3 + axis];
+                    while (minTail > minHead && pro[minQueue[minTail - 1] * 3 + axis] >= value) {
+                        minTail--;
+                    }
+                    minQueue[minTail++] = added;
+                    while (maxTail > maxHead && pro[maxQueue[maxTail - 1] * 3 + axis] <= value) {
+                        maxTail--;
+                    }
+                    maxQueue[maxTail++] = added;
+                }
+
+                // Drop the columns that left it
+                while (minQueue[minHead] < from[i]) {
+                    minHead++;
+                }
+                while (maxQueue[maxHead] < from[i]) {
+                    maxHead++;
+                }
+
+                envelope[i * 6 + axis] = pro[minQueue[minHead] * 3 + axis];
+                envelope[i * 6 + 3 + axis] = pro[maxQueue[maxHead] * 3 + axis];
+            }
+        }
+        return envelope;
+    }
+
+    /**
+     * LB_Keogh: every user frame is matched with at least one professional frame
+     * inside its box, and is at least as far from that frame as from the box.
+     *
+     * @param user     Packed user coordinates
+     * @param envelope Envelope of the professional frames from envelope()
+     * @param m        Number of professional frames
+     * @return Lower bound of the normalized DTW distance
+     */
+    static float keogh(float[] user, float[] envelope, int m) {
+        int n = user.length / 3;
+        float bound = 0;
+        for (int i = 0; i < n; i++) {
+            float squared = 0;
+            for (int axis = 0; axis < 3; axis++) {
+                float value = user[i * 3 + axis];
+                float gap = Math.max(0, Math.max(envelope[i * 6 + axis] - value, value - envelope[i * 6 + 3 + axis]));
+                squared += gap * gap;
+            }
+            // An empty row (NaN box) gives no bound
+            if (squared == squared) {
+                bound += (float) Math.sqrt(squared);
+            }
+        }
+        return bound / Math.max(n, m);
+    }
+}
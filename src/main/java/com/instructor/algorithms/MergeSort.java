@@ -1,6 +1,9 @@
 package com.instructor.algorithms;
 
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.List;
+import java.util.ListIterator;
 import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.RecursiveAction;
 
@@ -8,90 +11,465 @@ public class MergeSort {
     private static final ForkJoinPool pool = ForkJoinPool.commonPool(); // Global thread pool
     private static final int THRESHOLD = 20; // Threshold for insertion sort
 
+    // Below this size forking costs more than it saves and the list is sorted on
+    // the calling thread
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    // Element array and merge buffer of each thread, grown on demand and reused
+    // by every later sort on that thread
+    private static final ThreadLocal<Object[][]> BUFFERS = ThreadLocal.withInitial(() -> new Object[2][0]);
+
+    // Longest buffer kept by a thread between sorts; longer sorts allocate their
+    // own, which costs little next to the sort and is freed with it
+    private static final int MAX_RETAINED_LENGTH = 1 << 16;
+
+    // Merge buffers of the primitive sorts, one per thread
+    private static final ThreadLocal<int[]> INT_BUFFER = ThreadLocal.withInitial(() -> new int[0]);
+    private static final ThreadLocal<long[]> LONG_BUFFER = ThreadLocal.withInitial(() -> new long[0]);
+
+    // Primitive arrays whose values span at most this many times their length,
+    // and at most MAX_COUNTING_RANGE values, are sorted by counting
+    private static final int COUNTING_RANGE_FACTOR = 4;
+    private static final int MAX_COUNTING_RANGE = 1 << 22;
+
     /**
-     * Sorts a list of integers in ascending order using the merge sort algorithm.
-     * This method serves as an entry point that initializes the recursive sorting
-     * process.
+     * Sorts a list in the given order using the merge sort algorithm. The sort is
+     * stable: equal elements keep their relative order. The elements are copied
+     * into an array once, merged through a single auxiliary buffer and written
+     * back, so every merge is linear whatever the list implementation.
      *
-     * @param list The list of integers to be sorted. The list is sorted in-place.
+     * @param list      The list to be sorted. The list is sorted in-place.
+     * @param ascending True if ascending, false if descending
      */
     public static <T extends Comparable<T>> void mergeSort(List<T> list, boolean ascending) {
-        if (list.size() <= 1) {
+        int n = list.size();
+        if (n <= 1) {
             return; // Base case: a list of size 0 or 1 is already sorted
         }
 
-        pool.invoke(new MergeSortTask<>(list, 0, list.size() - 1, ascending));
+        Comparator<T> order = ascending ? Comparator.naturalOrder() : Comparator.reverseOrder();
+        Object[][] buffers = objectBuffers(n);
+        Object[] elements = buffers[0];
+        Object[] aux = buffers[1];
+
+        int k = 0;
+        for (T element : list) {
+            elements[k++] = element;
+        }
+
+        if (n < PARALLEL_THRESHOLD || pool.getParallelism() <= 1) {
+            sort(elements, aux, 0, n - 1, order);
+        } else {
+            pool.invoke(new MergeSortTask<>(elements, aux, 0, n - 1, order));
+        }
+
+        ListIterator<T> iterator = list.listIterator();
+        for (k = 0; k < n; k++) {
+            iterator.next();
+            iterator.set(cast(elements[k]));
+        }
+
+        // Do not keep the caller's elements reachable from the thread
+        Arrays.fill(elements, 0, n, null);
+        Arrays.fill(aux, 0, n, null);
     }
 
-    private static class MergeSortTask<T extends Comparable<T>> extends RecursiveAction {
-        private final List<T> list;
+    private static class MergeSortTask<T> extends RecursiveAction {
+        private final Object[] elements;
+        private final Object[] aux;
         private final int left;
         private final int right;
-        private final boolean ascending;
+        private final Comparator<T> order;
 
-        public MergeSortTask(List<T> list, int left, int right, boolean ascending) {
-            this.list = list;
+        public MergeSortTask(Object[] elements, Object[] aux, int left, int right, Comparator<T> order) {
+            this.elements = elements;
+            this.aux = aux;
             this.left = left;
             this.right = right;
-            this.ascending = ascending;
+            this.order = order;
         }
 
         @Override
         protected void compute() {
-            if (right - left + 1 <= THRESHOLD) { // If sublist size <= threshold, use insertion sort
-                InsertionSort.insertionSort(list, left, right, ascending);
+            if (right - left + 1 < PARALLEL_THRESHOLD) { // Small enough to finish on this worker
+                sort(elements, aux, left, right, order);
                 return;
             }
 
-            int mid = (left + right) / 2;
+            int mid = (left + right) >>> 1;
 
-            // Create subtasks for left and right sublists
-            MergeSortTask<T> leftTask = new MergeSortTask<>(list, left, mid, ascending);
-            MergeSortTask<T> rightTask = new MergeSortTask<>(list, mid + 1, right, ascending);
-
-            // Invoke subtasks in parallel
-            invokeAll(leftTask, rightTask);
+            // Create subtasks for left and right sublists and invoke them in parallel
+            invokeAll(new MergeSortTask<>(elements, aux, left, mid, order),
+                    new MergeSortTask<>(elements, aux, mid + 1, right, order));
 
             // Merge sorted sublists
-            merge(list, left, mid, right, ascending);
+            merge(elements, aux, left, mid, right, order);
+        }
+    }
+
+    /**
+     * Sequential merge sort of elements[left..right], using aux[left..right] as
+     * the merge buffer.
+     */
+    private static <T> void sort(Object[] elements, Object[] aux, int left, int right, Comparator<T> order) {
+        if (right - left + 1 <= THRESHOLD) { // If sublist size <= threshold, use insertion sort
+            insertionSort(elements, left, right, order);
+            return;
+        }
 
+        int mid = (left + right) >>> 1;
+        sort(elements, aux, left, mid, order);
+        sort(elements, aux, mid + 1, right, order);
+        merge(elements, aux, left, mid, right, order);
+    }
+
+    /**
+     * Merges two contiguous sorted ranges [left, mid] and [mid+1, right] of the
+     * array. The left range is copied to the buffer and merged back, taking the
+     * left element on ties so the sort stays stable.
+     *
+     * @param elements The array containing the ranges to be merged.
+     * @param aux      Buffer at least as long as the array
+     * @param left     The starting index of the first range.
+     * @param mid      The ending index of the first range.
+     * @param right    The ending index of the second range.
+     * @param order    Order of the elements
+     */
+    private static <T> void merge(Object[] elements, Object[] aux, int left, int mid, int right,
+            Comparator<T> order) {
+        // Already in order, e.g. frame numbers read in sequence
+        if (order.compare(cast(elements[mid]), cast(elements[mid + 1])) <= 0) {
+            return;
+        }
+
+        System.arraycopy(elements, left, aux, left, mid - left + 1);
+
+        int i = left; // Left range pointer, in the buffer
+        int j = mid + 1; // Right range pointer, in place
+        int k = left; // Output pointer
+        while (i <= mid && j <= right) {
+            if (order.compare(cast(aux[i]), cast(elements[j])) <= 0) {
+                elements[k++] = aux[i++];
+            } else {
+                elements[k++] = elements[j++];
+            }
+        }
+
+        // Remaining right elements are already in place
+        System.arraycopy(aux, i, elements, k, mid - i + 1);
+    }
+
+    /**
+     * Insertion sort of elements[left..right], for ranges below THRESHOLD.
+     */
+    private static <T> void insertionSort(Object[] elements, int left, int right, Comparator<T> order) {
+        for (int i = left + 1; i <= right; i++) {
+            Object key = elements[i];
+            int j = i - 1;
+            while (j >= left && order.compare(cast(elements[j]), cast(key)) > 0) {
+                elements[j + 1] = elements[j]; // Shift elements to the right
+                j--;
+            }
+            elements[j + 1] = key;
         }
     }
 
     /**
-     * Merges two contiguous sublists within the given list in place. The sublists
-     * are defined by the indices [left, mid] and [mid+1, right]. This method
-     * assumes that both sublists are already sorted and merges them into a single
-     * sorted sublist.
+     * Sorts an array of ints in place. Values within a range not much wider than
+     * the array, such as the frame numbers of a recording, are sorted by counting
+     * in O(n + range); other arrays by merge sort, in parallel when large.
      *
-     * @param list      The list containing the sublists to be merged.
-     * @param left      The starting index of the first sublist.
-     * @param mid       The ending index of the first sublist, which is also one
-     *                  less
-     *                  than the starting index of the second sublist.
-     * @param right     The ending index of the second sublist.
+     * @param array     The array to be sorted
      * @param ascending True if ascending, false if descending
      */
-    private static <T extends Comparable<T>> void merge(List<T> list, int left, int mid, int right, boolean ascending) {
-        int i = left; // Left sublist pointer
-        int j = mid + 1; // Right sublist pointer
+    public static void mergeSort(int[] array, boolean ascending) {
+        int n = array.length;
+        if (n <= 1) {
+            return;
+        }
 
-        // Iterate over the left and right sublists to merge
+        int min = array[0];
+        int max = array[0];
+        for (int value : array) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        long range = (long) max - min + 1;
+        if (range > 0 && range <= Math.min(MAX_COUNTING_RANGE, COUNTING_RANGE_FACTOR * (long) n)) {
+            countingSort(array, min, (int) range);
+        } else {
+            int[] aux = intBuffer(n);
+            if (n < PARALLEL_THRESHOLD || pool.getParallelism() <= 1) {
+                sort(array, aux, 0, n - 1);
+            } else {
+                pool.invoke(new IntSortTask(array, aux, 0, n - 1));
+            }
+        }
+
+        if (!ascending) {
+            reverse(array);
+        }
+    }
+
+    /**
+     * Rewrites the array from the count of every value in [min, min + range).
+     */
+    private static void countingSort(int[] array, int min, int range) {
+        // Allocated per call: a range of up to MAX_COUNTING_RANGE counts must not
+        // stay reachable from the thread, and a fresh array is already zeroed
+        int[] counts = new int[range];
+        for (int value : array) {
+            counts[value - min]++;
+        }
+
+        int k = 0;
+        for (int v = 0; v < range; v++) {
+            for (int c = counts[v]; c > 0; c--) {
+                array[k++] = min + v;
+            }
+        }
+    }
+
+    private static class IntSortTask extends RecursiveAction {
+        private final int[] array;
+        private final int[] aux;
+        private final int left;
+        private final int right;
+
+        IntSortTask(int[] array, int[] aux, int left, int right) {
+            this.array = array;
+            this.aux = aux;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        protected void compute() {
+            if (right - left + 1 < PARALLEL_THRESHOLD) { // Small enough to finish on this worker
+                sort(array, aux, left, right);
+                return;
+            }
+
+            int mid = (left + right) >>> 1;
+            invokeAll(new IntSortTask(array, aux, left, mid), new IntSortTask(array, aux, mid + 1, right));
+            merge(array, aux, left, mid, right);
+        }
+    }
+
+    /**
+     * Sequential ascending merge sort of array[left..right].
+     */
+    private static void sort(int[] array, int[] aux, int left, int right) {
+        if (right - left + 1 <= THRESHOLD) { // If subarray size <= threshold, use insertion sort
+            InsertionSort.insertionSort(array, left, right, true);
+            return;
+        }
+
+        int mid = (left + right) >>> 1;
+        sort(array, aux, left, mid);
+        sort(array, aux, mid + 1, right);
+        merge(array, aux, left, mid, right);
+    }
+
+    /**
+     * Merges the sorted ranges [left, mid] and [mid+1, right] through the buffer.
+     */
+    private static void merge(int[] array, int[] aux, int left, int mid, int right) {
+        if (array[mid] <= array[mid + 1]) {
+            return; // Already in order
+        }
+
+        System.arraycopy(array, left, aux, left, mid - left + 1);
+        int i = left;
+        int j = mid + 1;
+        int k = left;
         while (i <= mid && j <= right) {
-            // Determine if ascending or descending
-            if ((ascending && list.get(i).compareTo(list.get(j)) <= 0)
-                    || (!ascending && list.get(i).compareTo(list.get(j)) >= 0)) {
-                i++; // Already sorted
+            array[k++] = aux[i] <= array[j] ? aux[i++] : array[j++];
+        }
+        System.arraycopy(aux, i, array, k, mid - i + 1);
+    }
+
+    private static void reverse(int[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            int swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+    }
+
+    /**
+     * Sorts an array of longs in place. Values within a range not much wider than
+     * the array, such as the frame numbers of a recording, are sorted by counting
+     * in O(n + range); other arrays by merge sort, in parallel when large.
+     *
+     * @param array     The array to be sorted
+     * @param ascending True if ascending, false if descending
+     */
+    public static void mergeSort(long[] array, boolean ascending) {
+        int n = array.length;
+        if (n <= 1) {
+            return;
+        }
+
+        long min = array[0];
+        long max = array[0];
+        for (long value : array) {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+
+        long range = max - min + 1;
+        if (range > 0 && range <= Math.min(MAX_COUNTING_RANGE, COUNTING_RANGE_FACTOR * (long) n)) {
+            countingSort(array, min, (int) range);
+        } else {
+            long[] aux = longBuffer(n);
+            if (n < PARALLEL_THRESHOLD || pool.getParallelism() <= 1) {
+                sort(array, aux, 0, n - 1);
             } else {
-                // Left > Right Ascending, Right > Left Descending
-                T temp = list.get(j); // Store element
-                list.remove(j); // Remove element
-                list.add(i, temp); // Add right element to the left sublist
-
-                i++;
-                mid++;
-                j++;
+                pool.invoke(new LongSortTask(array, aux, 0, n - 1));
+            }
+        }
+
+        if (!ascending) {
+            reverse(array);
+        }
+    }
+
+    /**
+     * Rewrites the array from the count of every value in [min, min + range).
+     */
+    private static void countingSort(long[] array, long min, int range) {
+        int[] counts = new int[range];
+        for (long value : array) {
+            counts[(int) (value - min)]++;
+        }
+
+        int k = 0;
+        for (int v = 0; v < range; v++) {
+            for (int c = counts[v]; c > 0; c--) {
+                array[k++] = min + v;
+            }
+        }
+    }
+
+    private static class LongSortTask extends RecursiveAction {
+        private final long[] array;
+        private final long[] aux;
+        private final int left;
+        private final int right;
+
+        LongSortTask(long[] array, long[] aux, int left, int right) {
+            this.array = array;
+            this.aux = aux;
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        protected void compute() {
+            if (right - left + 1 < PARALLEL_THRESHOLD) { // Small enough to finish on this worker
+                sort(array, aux, left, right);
+                return;
             }
+
+            int mid = (left + right) >>> 1;
+            invokeAll(new LongSortTask(array, aux, left, mid), new LongSortTask(array, aux, mid + 1, right));
+            merge(array, aux, left, mid, right);
+        }
+    }
+
+    /**
+     * Sequential ascending merge sort of array[left..right].
+     */
+    private static void sort(long[] array, long[] aux, int left, int right) {
+        if (right - left + 1 <= THRESHOLD) { // If subarray size <= threshold, use insertion sort
+            InsertionSort.insertionSort(array, left, right, true);
+            return;
+        }
+
+        int mid = (left + right) >>> 1;
+        sort(array, aux, left, mid);
+        sort(array, aux, mid + 1, right);
+        merge(array, aux, left, mid, right);
+    }
+
+    /**
+     * Merges the sorted ranges [left, mid] and [mid+1, right] through the buffer.
+     */
+    private static void merge(long[] array, long[] aux, int left, int mid, int right) {
+        if (array[mid] <= array[mid + 1]) {
+            return; // Already in order
+        }
+
+        System.arraycopy(array, left, aux, left, mid - left + 1);
+        int i = left;
+        int j = mid + 1;
+        int k = left;
+        while (i <= mid && j <= right) {
+            array[k++] = aux[i] <= array[j] ? aux[i++] : array[j++];
         }
+        System.arraycopy(aux, i, array, k, mid - i + 1);
+    }
+
+    private static void reverse(long[] array) {
+        for (int i = 0, j = array.length - 1; i < j; i++, j--) {
+            long swap = array[i];
+            array[i] = array[j];
+            array[j] = swap;
+        }
+    }
+
+    /**
+     * @return {element array, merge buffer} of at least the given length, this
+     *         thread's own unless longer than MAX_RETAINED_LENGTH
+     */
+    private static Object[][] objectBuffers(int length) {
+        if (length > MAX_RETAINED_LENGTH) {
+            return new Object[][] { new Object[length], new Object[length] };
+        }
+        Object[][] buffers = BUFFERS.get();
+        if (buffers[0].length < length) {
+            buffers[0] = new Object[Math.min(MAX_RETAINED_LENGTH, Math.max(length, buffers[0].length * 2))];
+            buffers[1] = new Object[buffers[0].length];
+        }
+        return buffers;
+    }
+
+    /**
+     * @return An int buffer of at least the given length, this thread's own
+     *         unless longer than MAX_RETAINED_LENGTH
+     */
+    private static int[] intBuffer(int length) {
+        if (length > MAX_RETAINED_LENGTH) {
+            return new int[length];
+        }
+        int[] buffer = INT_BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new int[Math.min(MAX_RETAINED_LENGTH, Math.max(length, buffer.length * 2))];
+            INT_BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * @return A long buffer of at least the given length, this thread's own
+     *         unless longer than MAX_RETAINED_LENGTH
+     */
+    private static long[] longBuffer(int length) {
+        if (length > MAX_RETAINED_LENGTH) {
+            return new long[length];
+        }
+        long[] buffer = LONG_BUFFER.get();
+        if (buffer.length < length) {
+            buffer = new long[Math.min(MAX_RETAINED_LENGTH, Math.max(length, buffer.length * 2))];
+            LONG_BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T cast(Object element) {
+        return (T) element;
     }
 }
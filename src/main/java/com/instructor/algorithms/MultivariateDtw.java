@@ -0,0 +1,223 @@
+package com.instructor.algorithms;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.instructor.data.PoseSequence;
+
+/**
+ * Dependent multivariate DTW: every cell of a single cost matrix compares whole
+ * body poses, as the weighted root mean square of the joint distances, so the
+ * whole body shares one alignment path and a pair of sequences costs one
+ * quadratic pass instead of one per joint.
+ *
+ * A frame is used if any selected joint was captured in it; joints missing from
+ * either frame of a cell are left out of that cell's mean.
+ */
+public class MultivariateDtw {
+    private final String[] joints;
+    private final float[] weights;
+    private final WarpingWindow window;
+
+    /**
+     * Compares the scored joints with equal weights and no window.
+     */
+    public MultivariateDtw() {
+        this(WarpingWindow.NONE);
+    }
+
+    /**
+     * Compares the scored joints with equal weights.
+     *
+     * @param window Global path constraint
+     */
+    public MultivariateDtw(WarpingWindow window) {
+        this(DynamicTimeWarping.SCORED_JOINTS.toArray(new String[0]), equalWeights(), window);
+    }
+
+    /**
+     * @param joints  Names of the compared joints
+     * @param weights Weight of each joint in the cell cost
+     * @param window  Global path constraint
+     */
+    public MultivariateDtw(String[] joints, float[] weights, WarpingWindow window) {
+        if (joints.length != weights.length) {
+            throw new IllegalArgumentException(
+                    "Expected one weight per joint: " + joints.length + " joints, " + weights.length + " weights");
+        }
+        this.joints = joints.clone();
+        this.weights = weights.clone();
+        this.window = window;
+    }
+
+    public List<String> getJoints() {
+        return List.of(joints);
+    }
+
+    public WarpingWindow getWindow() {
+        return window;
+    }
+
+    float[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Calculates the multivariate DTW distance between two pose sequences.
+     *
+     * @param user User pose sequence
+     * @param pro  Professional pose sequence
+     * @return The DTW distance normalized by max(n, m), or Float.MAX_VALUE if
+     *         either sequence has no frame with a selected joint
+     */
+    public float dtw(PoseSequence user, PoseSequence pro) {
+        return dtw(user, pro, Float.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Calculates the multivariate DTW distance, abandoning as soon as it is
+     * certain to exceed the cutoff.
+     *
+     * @param user   User pose sequence
+     * @param pro    Professional pose sequence
+     * @param cutoff Largest normalized distance of interest
+     * @return The DTW distance normalized by max(n, m), Float.POSITIVE_INFINITY if
+     *         it is above the cutoff, or Float.MAX_VALUE if either sequence has
+     *         no frame with a selected joint
+     */
+    public float dtw(PoseSequence user, PoseSequence pro, float cutoff) {
+        int[] userFrames = poseFrames(user);
+        int[] proFrames = poseFrames(pro);
+        if (userFrames.length == 0 || proFrames.length == 0) {
+            return Float.MAX_VALUE;
+        }
+
+        float[] userPoses = packPoses(user, userFrames);
+        float[] proPoses = packPoses(pro, proFrames);
+        int n = userFrames.length;
+        int m = proFrames.length;
+        boolean swap = window.isUnconstrained() && m > n;
+
+        // Without a window the shorter sequence can be the row
+        LocalCost localCost = swap ? LocalCost.joints(proPoses, userPoses, weights)
+                : LocalCost.joints(userPoses, proPoses, weights);
+        int rows = swap ? m : n;
+        int columns = swap ? n : m;
+
+        if (cutoff == Float.POSITIVE_INFINITY) {
+            return DynamicTimeWarping.dtw(localCost, rows, columns, window);
+        }
+        return DynamicTimeWarping.dtw(localCost, rows, columns, window, cutoff);
+    }
+
+    /**
+     * Calculates the alignment path shared by all selected joints.
+     *
+     * @param user User pose sequence
+     * @param pro  Professional pose sequence
+     * @return Pairs of {user frame, pro frame} along the path, with absolute frame
+     *         numbers
+     */
+    public List<int[]> dtwWithAlignmentPath(PoseSequence user, PoseSequence pro) {
+        int[] userFrames = poseFrames(user);
+        int[] proFrames = poseFrames(pro);
+
+        List<int[]> alignmentPath = DynamicTimeWarping.alignmentPath(
+                LocalCost.joints(packPoses(user, userFrames), packPoses(pro, proFrames), weights), userFrames,
+                proFrames, window);
+
+        for (int[] step : alignmentPath) {
+            step[0] += user.getFirstFrame();
+            step[1] += pro.getFirstFrame();
+        }
+        return alignmentPath;
+    }
+
+    /**
+     * Finds the part of a long professional routine that best matches a short
+     * user take, with subsequence DTW over the selected joints. The warping
+     * window does not apply, the match may start and end anywhere.
+     *
+     * @param userClip   User pose sequence, matched as a whole
+     * @param proRoutine Professional pose sequence to search
+     * @return The best match with absolute professional frame numbers, or null if
+     *         either sequence has no frame with a selected joint
+     */
+    public SubsequenceMatch locate(PoseSequence userClip, PoseSequence proRoutine) {
+        int[] userFrames = poseFrames(userClip);
+        int[] proFrames = poseFrames(proRoutine);
+
+        SubsequenceMatch match = DynamicTimeWarping.subsequenceDtw(
+                LocalCost.joints(packPoses(proRoutine, proFrames), packPoses(userClip, userFrames), weights),
+                userFrames.length, proFrames.length);
+        if (match == null) {
+            return null;
+        }
+        return new SubsequenceMatch(proFrames[match.getStartFrame()] + proRoutine.getFirstFrame(),
+                proFrames[match.getEndFrame()] + proRoutine.getFirstFrame(), match.getScore());
+    }
+
+    /**
+     * @return Relative indices of the frames in which any selected joint was
+     *         captured
+     */
+    int[] poseFrames(PoseSequence sequence) {
+        int[] indices = jointIndices(sequence);
+        int[] frames = new int[sequence.getFrameCount()];
+        int count = 0;
+
+        for (int f = 0; f < sequence.getFrameCount(); f++) {
+            for (int joint : indices) {
+                if (joint >= 0 && sequence.isPresent(joint, f)) {
+                    frames[count++] = f;
+                    break;
+                }
+            }
+        }
+        return Arrays.copyOf(frames, count);
+    }
+
+    /**
+     * Packs the selected joints of each frame into consecutive xyz triples, with
+     * NaN for joints not captured in that frame.
+     */
+    float[] packPoses(PoseSequence sequence, int[] frames) {
+        int[] indices = jointIndices(sequence);
+        int stride = joints.length * 3;
+        float[] packed = new float[frames.length * stride];
+        Arrays.fill(packed, Float.NaN);
+
+        for (int k = 0; k < frames.length; k++) {
+            for (int j = 0; j < indices.length; j++) {
+                int joint = indices[j];
+                if (joint >= 0 && sequence.isPresent(joint, frames[k])) {
+                    System.arraycopy(sequence.getCoordinates(), sequence.offset(joint, frames[k]), packed,
+                            k * stride + j * 3, 3);
+                }
+            }
+        }
+        return packed;
+    }
+
+    /**
+     * @return Index of each selected joint in the sequence, or -1 if it is absent
+     */
+    private int[] jointIndices(PoseSequence sequence) {
+        int[] indices = new int[joints.length];
+        for (int j = 0; j < joints.length; j++) {
+            indices[j] = sequence.getJointIndex(joints[j]);
+        }
+        return indices;
+    }
+
+    private static float[] equalWeights() {
+        float[] weights = new float[DynamicTimeWarping.SCORED_JOINTS.size()];
+        Arrays.fill(weights, 1f);
+        return weights;
+    }
+
+    @Override
+    public String toString() {
+        return "Multivariate(" + joints.length + " joints, " + window + ")";
+    }
+}
@@ -0,0 +1,194 @@
+package com.instructor.algorithms;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import com.instructor.data.PoseSequence;
+
+/**
+ * Online time warping: aligns a live user performance to a professional
+ * sequence one user frame at a time.
+ *
+ * Only a window of {@code windowSize} professional frames is kept. Each pushed
+ * frame adds one row of the multivariate DTW matrix inside the window, the
+ * cheapest cell of that row becomes the current position, and the window then
+ * slides forward so that the position stays in its first quarter. The cost of a
+ * frame is O(windowSize * joints) however long either performance gets, and
+ * the window never moves backwards.
+ */
+public class OnlineTimeWarping {
+    private final int[] proFrames;
+    private final int proFirstFrame;
+    private final int m;
+    private final int stride;
+    private final int windowSize;
+
+    // Pose of the frame being pushed, read by the local cost
+    private final float[] pose;
+    private final LocalCost localCost;
+    private final List<String> joints;
+
+    // Cumulative costs of the last row, row[k] is professional frame start + k
+    private float[] row;
+    private float[] nextRow;
+    private final float[] costs;
+    private int start = 0;
+
+    private int userFrameCount = 0;
+    private int position = -1;
+    private float score = Float.MAX_VALUE;
+
+    /**
+     * Aligns against the scored joints with equal weights.
+     *
+     * @param pro        Professional pose sequence
+     * @param windowSize Number of professional frames searched per user frame
+     */
+    public OnlineTimeWarping(PoseSequence pro, int windowSize) {
+        this(new MultivariateDtw(), pro, windowSize);
+    }
+
+    /**
+     * @param multivariate Joints and weights of the pose distance
+     * @param pro          Professional pose sequence
+     * @param windowSize   Number of professional frames searched per user frame
+     */
+    public OnlineTimeWarping(MultivariateDtw multivariate, PoseSequence pro, int windowSize) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("Window size must be positive: " + windowSize);
+        }
+        this.proFrames = multivariate.poseFrames(pro);
+        this.proFirstFrame = pro.getFirstFrame();
+        this.m = proFrames.length;
+        this.joints = multivariate.getJoints();
+        this.stride = joints.size() * 3;
+        this.windowSize = Math.min(windowSize, Math.max(1, m));
+
+        this.pose = new float[stride];
+        this.localCost = LocalCost.joints(pose, multivariate.packPoses(pro, proFrames), multivariate.getWeights());
+        this.row = new float[this.windowSize];
+        this.nextRow = new float[this.windowSize];
+        this.costs = new float[m];
+    }
+
+    /**
+     * Adds the next user frame.
+     *
+     * @param frame Coordinates of the captured joints by name; joints not in the
+     *              map count as missing
+     * @return The professional frame the performance is currently aligned to, or
+     *         -1 if the professional sequence is empty
+     */
+    public int push(Map<String, float[]> frame) {
+        Arrays.fill(pose, Float.NaN);
+        for (int k = 0; k < joints.size(); k++) {
+            float[] coordinates = frame.get(joints.get(k));
+            if (coordinates != null) {
+                System.arraycopy(coordinates, 0, pose, k * 3, 3);
+            }
+        }
+        return advance();
+    }
+
+    /**
+     * Adds the next user frame.
+     *
+     * @param packedPose Coordinates of the joints in the order of the
+     *                   MultivariateDtw joints, NaN for missing joints
+     * @return The professional frame the performance is currently aligned to, or
+     *         -1 if the professional sequence is empty
+     */
+    public int push(float[] packedPose) {
+        System.arraycopy(packedPose, 0, pose, 0, stride);
+        return advance();
+    }
+
+    /**
+     * Adds the row of the pose in {@code pose} and moves the window.
+     */
+    private int advance() {
+        if (m == 0) {
+            return -1;
+        }
+
+        int end = Math.min(m, start + windowSize);
+        localCost.row(0, start, end - 1, costs);
+
+        // Anchored at the first frames of both performances, like full DTW
+        boolean first = userFrameCount == 0;
+        for (int j = start; j < end; j++) {
+            int k = j - start;
+            float best;
+            if (first) {
+                best = k == 0 ? 0 : nextRow[k - 1];
+            } else {
+                best = Math.min(row[k], k == 0 ? Float.MAX_VALUE : Math.min(nextRow[k - 1], row[k - 1]));
+            }
+            nextRow[k] = costs[j] + best;
+        }
+        Arrays.fill(nextRow, end - start, windowSize, Float.MAX_VALUE);
+
+        float[] swap = row;
+        row = nextRow;
+        nextRow = swap;
+        userFrameCount++;
+
+        // Current position: the cheapest cell per path length, so that advancing
+        // further into the routine is not penalised for its longer path
+        int best = 0;
+        float bestCost = Float.MAX_VALUE;
+        for (int k = 0; k < end - start; k++) {
+            float normalized = row[k] / (userFrameCount + start + k + 1);
+            if (normalized < bestCost) {
+                bestCost = normalized;
+                best = k;
+            }
+        }
+        position = start + best;
+        score = row[best] / Math.max(userFrameCount, position + 1);
+
+        slide(Math.min(Math.max(start, position - windowSize / 4), Math.max(0, m - windowSize)));
+        return getProFrame();
+    }
+
+    /**
+     * Moves the window to a later start, dropping the rows' leading cells.
+     */
+    private void slide(int newStart) {
+        int shift = newStart - start;
+        if (shift <= 0) {
+            return;
+        }
+        int kept = Math.max(0, windowSize - shift);
+        System.arraycopy(row, Math.min(shift, windowSize), row, 0, kept);
+        Arrays.fill(row, kept, windowSize, Float.MAX_VALUE);
+        start = newStart;
+    }
+
+    /**
+     * @return The professional frame the performance is aligned to, or -1 before
+     *         the first frame
+     */
+    public int getProFrame() {
+        return position < 0 ? -1 : proFrames[position] + proFirstFrame;
+    }
+
+    /**
+     * @return DTW distance of the alignment so far, normalized like dtw()
+     */
+    public float getScore() {
+        return score;
+    }
+
+    public int getUserFrameCount() {
+        return userFrameCount;
+    }
+
+    /**
+     * @return True once the performance is aligned to the last professional frame
+     */
+    public boolean isFinished() {
+        return position == m - 1;
+    }
+}
@@ -0,0 +1,307 @@
+package com.instructor.algorithms;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import com.instructor.data.PoseDataProcessing;
+import com.instructor.data.PoseDataReader;
+import com.instructor.data.PoseSequence;
+
+/**
+ * A professional sequence compiled once for many comparisons.
+ *
+ * Compiling cleans, smooths and normalizes the recording and precomputes,
+ * for every scored joint, everything the comparison kernels derive from the
+ * professional side only:
+ * <ul>
+ * <li>the packed trajectory and its frame numbers,</li>
+ * <li>per-axis mean, minimum and maximum.</li>
+ * </ul>
+ * The FastDTW pyramid of halved trajectories is only needed by FastDtw, so it
+ * is built on first use. LB_Keogh envelopes also depend on the user length and
+ * the window, so they are built on use too; only the last one of each joint is
+ * kept, which serves every reference search of the same take without growing
+ * with the number of takes seen.
+ *
+ * A profile is immutable apart from those lazily built parts, which are set
+ * atomically, so one instance can serve any number of threads.
+ */
+public class ReferenceProfile {
+    private final String name;
+    private final PoseSequence sequence;
+    private final List<String> joints = new ArrayList<>();
+    private final Map<String, Integer> slots = new HashMap<>();
+    private final List<float[]> packed = new ArrayList<>();
+    private final List<int[]> frames = new ArrayList<>();
+    private final AtomicReferenceArray<float[][]> pyramids;
+    private final List<float[]> statistics = new ArrayList<>();
+    private final AtomicReferenceArray<Envelope> envelopes;
+
+    private ReferenceProfile(String name, PoseSequence sequence) {
+        this.name = name;
+        this.sequence = sequence;
+
+        for (int joint = 0; joint < sequence.getJointCount(); joint++) {
+            String jointName = sequence.getJointName(joint);
+            if (!DynamicTimeWarping.isPartNeeded(jointName)) {
+                continue;
+            }
+            float[] trajectory = sequence.packJoint(joint);
+            if (trajectory.length == 0) {
+                continue;
+            }
+
+            int[] jointFrames = sequence.getPresentFrames(joint);
+            for (int k = 0; k < jointFrames.length; k++) {
+                jointFrames[k] += sequence.getFirstFrame();
+            }
+
+            slots.put(jointName, joints.size());
+            joints.add(jointName);
+            packed.add(trajectory);
+            frames.add(jointFrames);
+            statistics.add(statistics(trajectory));
+        }
+        pyramids = new AtomicReferenceArray<>(joints.size());
+        envelopes = new AtomicReferenceArray<>(joints.size());
+    }
+
+    /**
+     * Compiles an already processed professional sequence.
+     *
+     * @param name     Name the reference is reported under
+     * @param sequence Cleaned, smoothed and normalized pose sequence
+     * @return The compiled profile
+     */
+    public static ReferenceProfile compile(String name, PoseSequence sequence) {
+        return new ReferenceProfile(name, sequence);
+    }
+
+    /**
+     * Reads, processes and compiles a keypoints file, e.g. a motion_database
+     * pro.txt.
+     *
+     * @param name     Name the reference is reported under
+     * @param filePath Path of the keypoints file
+     * @return The compiled profile
+     */
+    public static ReferenceProfile load(String name, String filePath) {
+        return load(name, filePath, null);
+    }
+
+    /**
+     * Reads, processes and compiles a keypoints file, parsing a large file in
+     * parallel ranges on the executor (see PoseDataReader).
+     *
+     * @param name     Name the reference is reported under
+     * @param filePath Path of the keypoints file
+     * @param executor Executor parsing the ranges, or null to read the file on
+     *                 the calling thread
+     * @return The compiled profile
+     */
+    public static ReferenceProfile load(String name, String filePath, ExecutorService executor) {
+        PoseSequence raw = new PoseDataReader().readPoseSequence(filePath, executor);
+        return compile(name, new PoseDataProcessing().processPoseData(raw));
+    }
+
+    /**
+     * Reads, processes and compiles a keypoints text or .pose file, failing
+     * instead of compiling what could be read.
+     *
+     * @param name Name the reference is reported under
+     * @param file Keypoints file
+     * @return The compiled profile
+     * @throws IOException If the file cannot be read, is malformed or holds no
+     *                     keypoints
+     */
+    public static ReferenceProfile load(String name, Path file) throws IOException {
+        return load(name, file, null);
+    }
+
+    /**
+     * Reads, processes and compiles a keypoints text or .pose file like
+     * load(name, file), parsing a large text file in parallel ranges on the
+     * executor.
+     *
+     * @param name     Name the reference is reported under
+     * @param file     Keypoints file
+     * @param executor Executor parsing the ranges, or null to read the file on
+     *                 the calling thread
+     * @return The compiled profile
+     * @throws IOException If the file cannot be read, is malformed or holds no
+     *                     keypoints
+     */
+    public static ReferenceProfile load(String name, Path file, ExecutorService executor) throws IOException {
+        PoseSequence raw = new PoseDataReader().readPoseSequence(file, executor);
+        if (raw.getJointCount() == 0 || raw.getFrameCount() == 0) {
+            throw new IOException("No keypoints in " + file);
+        }
+        return compile(name, new PoseDataProcessing().processPoseData(raw));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The processed sequence, with every joint of the recording
+     */
+    public PoseSequence getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return Scored joints captured in the recording, in storage order
+     */
+    public List<String> getJoints() {
+        return Collections.unmodifiableList(joints);
+    }
+
+    /**
+     * @return Number of captured frames of the joint, 0 if it is not scored
+     */
+    public int getFrameCount(String joint) {
+        Integer slot = slots.get(joint);
+        return slot == null ? 0 : frames.get(slot).length;
+    }
+
+    /**
+     * @return Mean {x, y, z} of the joint, or null if it is not scored
+     */
+    public float[] getMean(String joint) {
+        return statistic(joint, 0);
+    }
+
+    /**
+     * @return Smallest {x, y, z} of the joint, or null if it is not scored
+     */
+    public float[] getMin(String joint) {
+        return statistic(joint, 3);
+    }
+
+    /**
+     * @return Largest {x, y, z} of the joint, or null if it is not scored
+     */
+    public float[] getMax(String joint) {
+        return statistic(joint, 6);
+    }
+
+    /**
+     * @return Packed trajectory of the joint, or null if it is not scored.
+     *         Shared, callers must not modify it.
+     */
+    float[] packed(String joint) {
+        Integer slot = slots.get(joint);
+        return slot == null ? null : packed.get(slot);
+    }
+
+    /**
+     * @return Frame numbers of the packed trajectory, or null if the joint is
+     *         not scored
+     */
+    int[] frames(String joint) {
+        Integer slot = slots.get(joint);
+        return slot == null ? null : frames.get(slot);
+    }
+
+    /**
+     * FastDTW pyramid of the joint, built on first use. Threads racing on the
+     * first use may each build it; they all get equal pyramids.
+     *
+     * @return Pyramid as returned by FastDtw.pyramid, or null if the joint is
+     *         not scored
+     */
+    float[][] pyramid(String joint) {
+        Integer slot = slots.get(joint);
+        if (slot == null) {
+            return null;
+        }
+        float[][] pyramid = pyramids.get(slot);
+        if (pyramid == null) {
+            pyramid = FastDtw.pyramid(packed.get(slot));
+            pyramids.set(slot, pyramid);
+        }
+        return pyramid;
+    }
+
+    /**
+     * LB_Keogh envelope of the joint for a user take of n frames, reused while
+     * the same n and window are asked for.
+     *
+     * @return Envelope as returned by LowerBounds.envelope, or null if the joint
+     *         is not scored
+     */
+    float[] envelope(String joint, int n, WarpingWindow window) {
+        Integer slot = slots.get(joint);
+        if (slot == null) {
+            return null;
+        }
+        Envelope last = envelopes.get(slot);
+        if (last != null && last.n == n && last.window.equals(window)) {
+            return last.values;
+        }
+        float[] values = LowerBounds.envelope(packed.get(slot), n, window);
+        envelopes.set(slot, new Envelope(n, window, values));
+        return values;
+    }
+
+    private float[] statistic(String joint, int offset) {
+        Integer slot = slots.get(joint);
+        if (slot == null) {
+            return null;
+        }
+        float[] values = new float[3];
+        System.arraycopy(statistics.get(slot), offset, values, 0, 3);
+        return values;
+    }
+
+    /**
+     * @return {mean x, y, z, min x, y, z, max x, y, z} of a non-empty trajectory
+     */
+    private static float[] statistics(float[] trajectory) {
+        int n = trajectory.length / 3;
+        float[] result = new float[9];
+        for (int axis = 0; axis < 3; axis++) {
+            double sum = 0;
+            float min = Float.POSITIVE_INFINITY;
+            float max = Float.NEGATIVE_INFINITY;
+            for (int i = 0; i < n; i++) {
+                float value = trajectory[i * 3 + axis];
+                sum += value;
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+            result[axis] = (float) (sum / n);
+            result[3 + axis] = min;
+            result[6 + axis] = max;
+        }
+        return result;
+    }
+
+    /**
+     * Envelope of one joint with the take length and window it was built for.
+     */
+    private static final class Envelope {
+        final int n;
+        final WarpingWindow window;
+        final float[] values;
+
+        Envelope(int n, WarpingWindow window, float[] values) {
+            this.n = n;
+            this.window = window;
+            this.values = values;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + joints.size() + " joints, " + sequence.getFrameCount() + " frames)";
+    }
+}
@@ -0,0 +1,40 @@
+package com.instructor.algorithms;
+
+/**
+ * Distance of a user take to one professional reference, as ranked by
+ * BatchComparison.
+ */
+public class ReferenceScore {
+    private final String name;
+    private final float distance;
+    private final int jointCount;
+
+    /**
+     * @param name       Name the reference was given
+     * @param distance   Average per-joint DTW distance, Float.MAX_VALUE if no
+     *                   joint could be compared
+     * @param jointCount Number of joints the distance averages over
+     */
+    public ReferenceScore(String name, float distance, int jointCount) {
+        this.name = name;
+        this.distance = distance;
+        this.jointCount = jointCount;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getDistance() {
+        return distance;
+    }
+
+    public int getJointCount() {
+        return jointCount;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (distance " + distance + ", " + jointCount + " joints)";
+    }
+}
@@ -0,0 +1,176 @@
+package com.instructor.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.instructor.data.PoseSequence;
+
+/**
+ * Nearest professional reference search over a library of routines, using the
+ * same average per-joint distance as DynamicTimeWarping.totalDtw.
+ *
+ * Candidates go through a lower-bound cascade before any DTW runs: LB_Kim (first
+ * and last frames), then LB_Keogh (distance of every user frame to the bounding
+ * box of the professional frames the window lets it match), and only then an
+ * early-abandoning totalDtw against the best distance so far. Candidates are
+ * visited from the lowest LB_Kim up, so a good match is usually found first;
+ * LB_Keogh and its envelopes are only computed for the candidates LB_Kim could
+ * not prune. References are kept as
+ * ReferenceProfiles, so their packed joints and envelopes are built once and
+ * reused by every query.
+ */
+public class ReferenceSearch {
+    private final WarpingWindow window;
+    private final DtwEngine engine;
+    private final List<ReferenceProfile> references = new ArrayList<>();
+
+    public ReferenceSearch() {
+        this(WarpingWindow.NONE);
+    }
+
+    /**
+     * @param window Global path constraint of every comparison
+     */
+    public ReferenceSearch(WarpingWindow window) {
+        this.window = window;
+        this.engine = new ExactDtw(window);
+    }
+
+    /**
+     * Adds a professional routine to the library.
+     *
+     * @param name      Name reported when the routine is the nearest
+     * @param reference Professional pose sequence
+     */
+    public void addReference(String name, PoseSequence reference) {
+        addReference(ReferenceProfile.compile(name, reference));
+    }
+
+    /**
+     * Adds a compiled professional routine to the library. Its packed joints and
+     * envelopes are shared with every other user of the profile.
+     *
+     * @param reference Compiled professional routine
+     */
+    public void addReference(ReferenceProfile reference) {
+        references.add(reference);
+    }
+
+    public int size() {
+        return references.size();
+    }
+
+    /**
+     * Finds the reference with the smallest totalDtw distance to the user take.
+     *
+     * @param user User pose sequence
+     * @return The nearest reference with pruning statistics; the name is null if
+     *         no reference shares a joint with the take
+     */
+    public SearchResult nearest(PoseSequence user) {
+        long start = System.nanoTime();
+        int count = references.size();
+
+        // Scored user joints, packed once for all candidates
+        List<String> joints = new ArrayList<>();
+        List<float[]> userJoints = new ArrayList<>();
+        for (int joint = 0; joint < user.getJointCount(); joint++) {
+            String name = user.getJointName(joint);
+            if (DynamicTimeWarping.isPartNeeded(name)) {
+                float[] packed = user.packJoint(joint);
+                if (packed.length > 0) {
+                    joints.add(name);
+                    userJoints.add(packed);
+                }
+            }
+        }
+
+        // LB_Kim of every candidate, O(joints) each, then visit the candidates
+        // from the lowest bound up so a good match is found early
+        List<List<float[][]>> jointPairs = new ArrayList<>();
+        List<List<String>> pairJoints = new ArrayList<>();
+        float[] kim = new float[count];
+        Integer[] order = new Integer[count];
+        for (int c = 0; c < count; c++) {
+            ReferenceProfile reference = references.get(c);
+            List<float[][]> pairs = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            for (int k = 0; k < joints.size(); k++) {
+                float[] pro = reference.packed(joints.get(k));
+                if (pro != null) {
+                    pairs.add(new float[][] { userJoints.get(k), pro });
+                    names.add(joints.get(k));
+                }
+            }
+            jointPairs.add(pairs);
+            pairJoints.add(names);
+            kim[c] = pairs.isEmpty() ? Float.MAX_VALUE : averageKim(pairs);
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Float.compare(kim[a], kim[b]));
+
+        float best = Float.MAX_VALUE;
+        int bestIndex = -1;
+        int prunedByKim = 0;
+        int prunedByKeogh = 0;
+        int abandoned = 0;
+        int compared = 0;
+
+        for (int c : order) {
+            List<float[][]> pairs = jointPairs.get(c);
+            if (pairs.isEmpty()) {
+                continue;
+            }
+            compared++;
+
+            if (bestIndex >= 0) {
+                if (kim[c] > best) {
+                    prunedByKim++;
+                    continue;
+                }
+                // LB_Keogh, with the O(n + m) envelope, only for candidates LB_Kim kept
+                if (averageKeogh(references.get(c), pairJoints.get(c), pairs) > best) {
+                    prunedByKeogh++;
+                    continue;
+                }
+            }
+
+            // Full DTW, abandoned once it cannot beat the best so far
+            float distance = DynamicTimeWarping.averageDtw(pairs, engine,
+                    bestIndex < 0 ? Float.POSITIVE_INFINITY : best);
+            if (distance == Float.POSITIVE_INFINITY) {
+                abandoned++;
+            } else if (bestIndex < 0 || distance < best) {
+                best = distance;
+                bestIndex = c;
+            }
+        }
+
+        String name = bestIndex < 0 ? null : references.get(bestIndex).getName();
+        return new SearchResult(name, best, compared, prunedByKim, prunedByKeogh, abandoned,
+                System.nanoTime() - start);
+    }
+
+    private static float averageKim(List<float[][]> pairs) {
+        float total = 0;
+        for (float[][] pair : pairs) {
+            total += LowerBounds.kim(pair[0], pair[1]);
+        }
+        return total / pairs.size();
+    }
+
+    /**
+     * Average LB_Keogh bound of the joint pairs of a candidate.
+     */
+    private float averageKeogh(ReferenceProfile reference, List<String> joints, List<float[][]> pairs) {
+        float total = 0;
+        for (int k = 0; k < pairs.size(); k++) {
+            float[] user = pairs.get(k)[0];
+            float[] pro = pairs.get(k)[1];
+            float[] envelope = reference.envelope(joints.get(k), user.length / 3, window);
+            total += LowerBounds.keogh(user, envelope, pro.length / 3);
+        }
+        return total / pairs.size();
+    }
+}
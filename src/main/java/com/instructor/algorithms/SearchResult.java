@@ -0,0 +1,88 @@
+package com.instructor.algorithms;
+
+/**
+ * Nearest reference found by ReferenceSearch, with how much of the library the
+ * lower bounds pruned.
+ */
+public class SearchResult {
+    private final String reference;
+    private final float distance;
+    private final int candidates;
+    private final int prunedByKim;
+    private final int prunedByKeogh;
+    private final int abandoned;
+    private final long elapsedNanos;
+
+    public SearchResult(String reference, float distance, int candidates, int prunedByKim, int prunedByKeogh,
+            int abandoned, long elapsedNanos) {
+        this.reference = reference;
+        this.distance = distance;
+        this.candidates = candidates;
+        this.prunedByKim = prunedByKim;
+        this.prunedByKeogh = prunedByKeogh;
+        this.abandoned = abandoned;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * @return Name of the nearest reference, or null if none could be compared
+     */
+    public String getReference() {
+        return reference;
+    }
+
+    /**
+     * @return Average per-joint DTW distance to the nearest reference
+     */
+    public float getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return References sharing at least one joint with the take
+     */
+    public int getCandidates() {
+        return candidates;
+    }
+
+    public int getPrunedByKim() {
+        return prunedByKim;
+    }
+
+    public int getPrunedByKeogh() {
+        return prunedByKeogh;
+    }
+
+    /**
+     * @return Candidates whose DTW was started but abandoned above the best
+     *         distance
+     */
+    public int getAbandoned() {
+        return abandoned;
+    }
+
+    /**
+     * @return Candidates whose DTW ran to completion
+     */
+    public int getCompleted() {
+        return candidates - prunedByKim - prunedByKeogh - abandoned;
+    }
+
+    /**
+     * @return Share of candidates discarded without a full DTW, 0 to 1
+     */
+    public float getPruningRate() {
+        return candidates == 0 ? 0 : (float) (prunedByKim + prunedByKeogh + abandoned) / candidates;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s (distance %.5f): %d candidates, %d pruned by LB_Kim, %d by LB_Keogh, "
+                + "%d abandoned, %.0f%% pruned, %.2f ms", reference, distance, candidates, prunedByKim,
+                prunedByKeogh, abandoned, getPruningRate() * 100, elapsedNanos / 1_000_000.0);
+    }
+}
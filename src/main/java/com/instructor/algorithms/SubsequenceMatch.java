@@ -0,0 +1,40 @@
+package com.instructor.algorithms;
+
+/**
+ * Best match of a short user take inside a longer professional sequence, as
+ * found by subsequence DTW.
+ */
+public class SubsequenceMatch {
+    private final int startFrame;
+    private final int endFrame;
+    private final float score;
+
+    /**
+     * @param startFrame First matched professional frame
+     * @param endFrame   Last matched professional frame (inclusive)
+     * @param score      DTW distance of the match normalized by max(user length,
+     *                   match length)
+     */
+    public SubsequenceMatch(int startFrame, int endFrame, float score) {
+        this.startFrame = startFrame;
+        this.endFrame = endFrame;
+        this.score = score;
+    }
+
+    public int getStartFrame() {
+        return startFrame;
+    }
+
+    public int getEndFrame() {
+        return endFrame;
+    }
+
+    public float getScore() {
+        return score;
+    }
+
+    @Override
+    public String toString() {
+        return "frames " + startFrame + ".." + endFrame + " (score " + score + ")";
+    }
+}
@@ -0,0 +1,183 @@
+package com.instructor.algorithms;
+
+import java.util.Objects;
+
+/**
+ * Global constraint on which cells of the DTW cost matrix may be visited.
+ *
+ * Rows are user frames (1..n) and columns are professional frames (1..m). For
+ * every row the window yields an inclusive column range; cells outside of it are
+ * treated as unreachable. Windows always keep a corridor of at least
+ * ceil(max(n, m) / min(n, m)) columns around the scaled diagonal so a path from
+ * (1, 1) to (n, m) exists even for very narrow settings.
+ */
+public class WarpingWindow {
+
+    /** Unconstrained window, i.e. classic full DTW. */
+    public static final WarpingWindow NONE = new WarpingWindow(Type.NONE, 0, 0);
+
+    private enum Type {
+        NONE, SAKOE_CHIBA_FRAMES, SAKOE_CHIBA_FRACTION, ITAKURA
+    }
+
+    private final Type type;
+    private final int frames;
+    private final float value;
+
+    private WarpingWindow(Type type, int frames, float value) {
+        this.type = type;
+        this.frames = frames;
+        this.value = value;
+    }
+
+    /**
+     * Sakoe-Chiba band of a fixed width around the scaled diagonal.
+     *
+     * @param frames Maximum distance, in professional frames, from the diagonal
+     * @return Band window
+     */
+    public static WarpingWindow sakoeChiba(int frames) {
+        if (frames < 0) {
+            throw new IllegalArgumentException("Band width must not be negative: " + frames);
+        }
+        return new WarpingWindow(Type.SAKOE_CHIBA_FRAMES, frames, 0);
+    }
+
+    /**
+     * Sakoe-Chiba band whose width is a fraction of the longer sequence.
+     *
+     * @param fraction Band width as a fraction of max(n, m), between 0 and 1
+     * @return Band window
+     */
+    public static WarpingWindow sakoeChibaFraction(float fraction) {
+        if (fraction < 0 || fraction > 1) {
+            throw new IllegalArgumentException("Band fraction must be between 0 and 1: " + fraction);
+        }
+        return new WarpingWindow(Type.SAKOE_CHIBA_FRACTION, 0, fraction);
+    }
+
+    /**
+     * Itakura parallelogram, limiting the local tempo ratio between the two
+     * performances.
+     *
+     * @param slope Maximum slope of the warping path, greater than 1 (2 is the
+     *              usual choice)
+     * @return Parallelogram window
+     */
+    public static WarpingWindow itakura(float slope) {
+        if (slope <= 1) {
+            throw new IllegalArgumentException("Itakura slope must be greater than 1: " + slope);
+        }
+        return new WarpingWindow(Type.ITAKURA, 0, slope);
+    }
+
+    /**
+     * @return True if this window does not restrict the matrix
+     */
+    public boolean isUnconstrained() {
+        return type == Type.NONE;
+    }
+
+    /**
+     * @param i Row (user frame), 1-based
+     * @param n Number of user frames
+     * @param m Number of professional frames
+     * @return First column of the row that may be visited, 1-based
+     */
+    public int lower(int i, int n, int m) {
+        if (type == Type.NONE) {
+            return 1;
+        }
+
+        int center = center(i, n, m);
+        int lower = Math.min(center - corridor(n, m), (int) Math.floor(constrainedLower(i, n, m)));
+        return Math.max(1, lower);
+    }
+
+    /**
+     * @param i Row (user frame), 1-based
+     * @param n Number of user frames
+     * @param m Number of professional frames
+     * @return Last column of the row that may be visited, 1-based
+     */
+    public int upper(int i, int n, int m) {
+        if (type == Type.NONE) {
+            return m;
+        }
+
+        int center = center(i, n, m);
+        int upper = Math.max(center + corridor(n, m), (int) Math.ceil(constrainedUpper(i, n, m)));
+        return Math.min(m, upper);
+    }
+
+    /**
+     * @return Band radius in professional frames for Sakoe-Chiba windows
+     */
+    int radius(int n, int m) {
+        if (type == Type.SAKOE_CHIBA_FRAMES) {
+            return frames;
+        }
+        return (int) Math.ceil(value * Math.max(n, m));
+    }
+
+    private double constrainedLower(int i, int n, int m) {
+        if (type == Type.ITAKURA) {
+            double x = (double) i / n;
+            return m * Math.max(x / value, 1 - value * (1 - x));
+        }
+        return (double) i * m / n - radius(n, m);
+    }
+
+    private double constrainedUpper(int i, int n, int m) {
+        if (type == Type.ITAKURA) {
+            double x = (double) i / n;
+            return m * Math.min(value * x, 1 - (1 - x) / value);
+        }
+        return (double) i * m / n + radius(n, m);
+    }
+
+    /**
+     * Column on the scaled diagonal for row i.
+     */
+    private static int center(int i, int n, int m) {
+        return (int) Math.round((double) i * m / n);
+    }
+
+    /**
+     * Half width of the corridor that keeps the diagonal connected.
+     */
+    private static int corridor(int n, int m) {
+        if (Math.min(n, m) == 0) {
+            return 0;
+        }
+        return (Math.max(n, m) + Math.min(n, m) - 1) / Math.min(n, m);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof WarpingWindow)) {
+            return false;
+        }
+        WarpingWindow other = (WarpingWindow) o;
+        return type == other.type && frames == other.frames && Float.compare(value, other.value) == 0;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(type, frames, value);
+    }
+
+    @Override
+    public String toString() {
+        switch (type) {
+            case SAKOE_CHIBA_FRAMES:
+                return "Sakoe-Chiba(" + frames + " frames)";
+            case SAKOE_CHIBA_FRACTION:
+                return "Sakoe-Chiba(" + value + ")";
+            case ITAKURA:
+                return "Itakura(slope " + value + ")";
+            default:
+                return "None";
+        }
+    }
+}
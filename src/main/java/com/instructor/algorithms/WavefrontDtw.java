@@ -0,0 +1,179 @@
+package com.instructor.algorithms;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Parallel score-only DTW for a single long pair of sequences.
+ *
+ * The cost matrix is cut into square tiles. A tile only depends on the tile
+ * above, the tile to the left and the one diagonally above-left, so all tiles
+ * of an anti-diagonal are independent and run together on a fork-join pool,
+ * one diagonal after the other. Between diagonals only the last row and column
+ * of every tile are kept, so memory stays O(n + m). The result is bit-identical
+ * to the rolling-row kernel because every cell sees the same three neighbours.
+ */
+class WavefrontDtw extends RecursiveAction {
+    // Tile edge in cells; a tile's two rows, cost row and coordinates stay in L2
+    static final int TILE = 256;
+
+    // Local cost row of each worker, indexed by column like the kernels and
+    // reused by every wavefront the worker runs
+    private static final ThreadLocal<float[]> COST_ROWS = ThreadLocal.withInitial(() -> new float[0]);
+
+    private final LocalCost localCost;
+    private final WarpingWindow window;
+    private final int n;
+    private final int m;
+    private final int tileRows;
+    private final int tileCols;
+
+    // Value of every column (1-based) in the last row computed over it
+    private final float[] bottom;
+
+    // Value of every row (1-based) in the last column computed over it
+    private final float[] right;
+
+    // Bottom-right cell of every tile, the corner input of its diagonal neighbour
+    private final float[][] corners;
+
+    private WavefrontDtw(LocalCost localCost, int n, int m, WarpingWindow window) {
+        this.localCost = localCost;
+        this.window = window;
+        this.n = n;
+        this.m = m;
+        this.tileRows = (n + TILE - 1) / TILE;
+        this.tileCols = (m + TILE - 1) / TILE;
+        this.bottom = new float[m + 1];
+        this.right = new float[n + 1];
+        this.corners = new float[tileRows][tileCols];
+
+        // Row 0 and column 0: only the origin is reachable
+        Arrays.fill(bottom, Float.MAX_VALUE);
+        Arrays.fill(right, Float.MAX_VALUE);
+    }
+
+    /**
+     * Calculates the normalized DTW distance on the given pool.
+     *
+     * @param localCost Cost of each cell
+     * @param n         Number of rows (user frames), at least 1
+     * @param m         Number of columns (professional frames), at least 1
+     * @param window    Global path constraint
+     * @param pool      Pool running the tiles
+     * @return The DTW distance normalized by max(n, m)
+     */
+    static float dtw(LocalCost localCost, int n, int m, WarpingWindow window, ForkJoinPool pool) {
+        WavefrontDtw wavefront = new WavefrontDtw(localCost, n, m, window);
+        if (ForkJoinTask.getPool() == pool) {
+            // Already on a worker of this pool, e.g. inside a parallel totalDtw
+            wavefront.invoke();
+        } else {
+            pool.invoke(wavefront);
+        }
+        return wavefront.bottom[m] / Math.max(n, m);
+    }
+
+    @Override
+    protected void compute() {
+        List<Tile> diagonal = new ArrayList<>();
+        for (int d = 0; d < tileRows + tileCols - 1; d++) {
+            diagonal.clear();
+            for (int ti = Math.max(0, d - tileCols + 1); ti <= Math.min(d, tileRows - 1); ti++) {
+                diagonal.add(new Tile(ti, d - ti));
+            }
+            ForkJoinTask.invokeAll(diagonal);
+        }
+    }
+
+    /**
+     * Returns the local cost row of the calling worker, growing it if it is
+     * shorter than the requested length.
+     */
+    private static float[] costRow(int length) {
+        float[] costs = COST_ROWS.get();
+        if (costs.length < length) {
+            costs = new float[length];
+            COST_ROWS.set(costs);
+        }
+        return costs;
+    }
+
+    /**
+     * One tile of the cost matrix, rows and columns 1-based as in the kernels.
+     */
+    private class Tile extends RecursiveAction {
+        private final int ti;
+        private final int tj;
+
+        Tile(int ti, int tj) {
+            this.ti = ti;
+            this.tj = tj;
+        }
+
+        @Override
+        protected void compute() {
+            int r0 = ti * TILE + 1;
+            int r1 = Math.min(n, r0 + TILE - 1);
+            int c0 = tj * TILE + 1;
+            int c1 = Math.min(m, c0 + TILE - 1);
+            int width = c1 - c0 + 1;
+
+            // Window bounds are non-decreasing, so these rows miss the tile entirely
+            if (window.lower(r0, n, m) > c1 || window.upper(r1, n, m) < c0) {
+                Arrays.fill(bottom, c0, c1 + 1, Float.MAX_VALUE);
+                Arrays.fill(right, r0, r1 + 1, Float.MAX_VALUE);
+                corners[ti][tj] = Float.MAX_VALUE;
+                return;
+            }
+
+            float[] previous = new float[width + 1];
+            float[] current = new float[width + 1];
+            float[] costs = costRow(m);
+
+            if (ti == 0) {
+                previous[0] = tj == 0 ? 0 : Float.MAX_VALUE;
+            } else {
+                previous[0] = tj == 0 ? Float.MAX_VALUE : corners[ti - 1][tj - 1];
+            }
+            System.arraycopy(bottom, c0, previous, 1, width);
+
+            for (int i = r0; i <= r1; i++) {
+                int lower = Math.max(c0, window.lower(i, n, m));
+                int upper = Math.min(c1, window.upper(i, n, m));
+                if (lower <= upper) {
+                    localCost.row(i - 1, lower - 1, upper - 1, costs);
+                }
+
+                // Same split of the recurrence as the rolling-row kernel
+                current[0] = right[i];
+                int from = lower - c0 + 1;
+                int to = upper - c0 + 1;
+                if (from > to) {
+                    Arrays.fill(current, 1, width + 1, Float.MAX_VALUE);
+                } else {
+                    Arrays.fill(current, 1, from, Float.MAX_VALUE);
+                    for (int k = from; k <= to; k++) {
+                        current[k] = costs[c0 + k - 2] + Math.min(previous[k], previous[k - 1]);
+                    }
+                    for (int k = from; k <= to; k++) {
+                        current[k] = Math.min(current[k], costs[c0 + k - 2] + current[k - 1]);
+                    }
+                    Arrays.fill(current, to + 1, width + 1, Float.MAX_VALUE);
+                }
+                right[i] = current[width];
+
+                float[] swap = previous;
+                previous = current;
+                current = swap;
+            }
+
+            System.arraycopy(previous, 1, bottom, c0, width);
+            corners[ti][tj] = previous[width];
+        }
+    }
+}
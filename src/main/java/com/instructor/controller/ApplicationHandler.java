@@ -1,10 +1,19 @@
 package com.instructor.controller;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 
+import com.instructor.algorithms.OnlineTimeWarping;
+import com.instructor.algorithms.ReferenceProfile;
+import com.instructor.data.KeypointStream;
 import com.instructor.data.PoseDataProcessing;
 import com.instructor.data.PoseDataReader;
+import com.instructor.data.PoseFrame;
+import com.instructor.data.PoseSequence;
 import com.instructor.main.DanceInstructorUIController;
 import com.instructor.aws.S3Service;
 import com.instructor.aws.DynamoDBService;
@@ -13,6 +22,15 @@ import com.instructor.aws.AWSConfig;
 import java.io.File;
 
 public class ApplicationHandler {
+        // Professional frames searched per live frame, 6 seconds at 20 fps
+        private static final int LIVE_WINDOW_SIZE = 120;
+
+        // Live frames between two progress lines, about 3 seconds
+        private static final int LIVE_REPORT_FRAMES = 60;
+
+        // Longest wait for the live follower once the capture has exited
+        private static final long LIVE_JOIN_MILLIS = 2000;
+
         private PoseDataReader poseDataReader = new PoseDataReader();
         private PoseDataProcessing poseDataProcessing = new PoseDataProcessing();
 
@@ -36,10 +54,16 @@ public class ApplicationHandler {
                         BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
                         String line;
                         String fileName = null;
+                        Thread liveFollower = null;
 
                         while ((line = reader.readLine()) != null) {
                                 System.out.println(line);
 
+                                // Follow the keypoints while the capture is still running
+                                if (line.endsWith(KeypointStream.LIVE_EXTENSION) && liveFollower == null) {
+                                        liveFollower = followLiveCapture(line.trim(), videoType.equals("beginner"));
+                                }
+
                                 if (line.endsWith(".txt")) {
                                         fileName = line;
                                 }
@@ -48,27 +72,32 @@ public class ApplicationHandler {
                         // Wait for the process to finish
                         int exitCode = process.waitFor();
                         System.out.println("Python script exited with code: " + exitCode);
+                        if (liveFollower != null) {
+                                liveFollower.join(LIVE_JOIN_MILLIS);
+                        }
 
                         // Return true if exit code is 0, otherwise false
                         if (exitCode == 0) {
                                 if (videoType.equals("beginner")) {
                                         DanceInstructorUIController.isUserInput = true;
 
-                                        DanceInstructorUIController.userKeypointsMap = poseDataReader
-                                                        .readKeypointsFromFile(fileName);
+                                        DanceInstructorUIController.userSequence = poseDataProcessing
+                                                        .processPoseData(poseDataReader.readPoseSequence(fileName));
 
-                                        DanceInstructorUIController.userKeypointsMap = poseDataProcessing
-                                                        .processPoseData(DanceInstructorUIController.userKeypointsMap);
+                                        DanceInstructorUIController.userKeypointsMap = DanceInstructorUIController.userSequence
+                                                        .toMap();
 
                                         return true;
                                 } else {
                                         DanceInstructorUIController.isProInput = true;
 
-                                        DanceInstructorUIController.proKeypointsMap = poseDataReader
-                                                        .readKeypointsFromFile(fileName);
+                                        DanceInstructorUIController.proSequence = poseDataProcessing
+                                                        .processPoseData(poseDataReader.readPoseSequence(fileName));
+                                        DanceInstructorUIController.proProfile = ReferenceProfile.compile("pro",
+                                                        DanceInstructorUIController.proSequence);
 
-                                        DanceInstructorUIController.proKeypointsMap = poseDataProcessing
-                                                        .processPoseData(DanceInstructorUIController.proKeypointsMap);
+                                        DanceInstructorUIController.proKeypointsMap = DanceInstructorUIController.proSequence
+                                                        .toMap();
 
                                         return true;
                                 }
@@ -82,6 +111,60 @@ public class ApplicationHandler {
                 }
         }
 
+        /**
+         * Follows the live keypoints file of a running capture on a background
+         * thread. Each frame is normalized as it arrives and, for a user capture
+         * with a professional sequence loaded, aligned to it with online time
+         * warping, so the position in the routine is reported during the capture.
+         * The live file is deleted once the capture has ended; the regular
+         * keypoints file written at the end is still the one that gets scored.
+         *
+         * @param liveFile Live keypoints file announced by the capture script
+         * @param align    True to align the frames to the professional sequence
+         * @return The started follower thread
+         */
+        private Thread followLiveCapture(String liveFile, boolean align) {
+                PoseSequence pro = DanceInstructorUIController.proSequence;
+                Thread follower = new Thread(() -> {
+                        OnlineTimeWarping online = align && pro.getFrameCount() > 0
+                                        ? new OnlineTimeWarping(pro, LIVE_WINDOW_SIZE)
+                                        : null;
+                        int frames = 0;
+
+                        try (KeypointStream stream = new KeypointStream(Paths.get(liveFile))) {
+                                while (stream.hasNext()) {
+                                        for (PoseFrame frame : stream.next()) {
+                                                frames++;
+                                                if (online == null || frame.getJoints().isEmpty()) {
+                                                        continue;
+                                                }
+                                                online.push(poseDataProcessing.normalizeFrame(frame).getJoints());
+                                                if (online.getUserFrameCount() % LIVE_REPORT_FRAMES == 0) {
+                                                        System.out.println("Live: frame " + frame.getFrame()
+                                                                        + " aligned to pro frame " + online.getProFrame());
+                                                }
+                                        }
+                                }
+                        } catch (IOException | UncheckedIOException e) {
+                                System.err.println("Live capture stopped: " + e.getMessage());
+                        }
+
+                        if (online != null && online.getUserFrameCount() > 0) {
+                                System.out.println("Live alignment: " + frames + " frames, reached pro frame "
+                                                + online.getProFrame() + ", distance " + online.getScore());
+                        }
+                        try {
+                                Files.deleteIfExists(Paths.get(liveFile));
+                        } catch (IOException e) {
+                                System.err.println("Could not delete " + liveFile + ": " + e.getMessage());
+                        }
+                }, "live-capture");
+
+                follower.setDaemon(true);
+                follower.start();
+                return follower;
+        }
+
         /**
          * AWS-based Pose Estimation
          * 1. Uploads video to S3
@@ -157,16 +240,18 @@ public class ApplicationHandler {
                         if (exitCode == 0 && fileName != null) {
                                 if (videoType.equals("beginner")) {
                                         DanceInstructorUIController.isUserInput = true;
-                                        DanceInstructorUIController.userKeypointsMap = poseDataReader
-                                                        .readKeypointsFromFile(fileName);
-                                        DanceInstructorUIController.userKeypointsMap = poseDataProcessing
-                                                        .processPoseData(DanceInstructorUIController.userKeypointsMap);
+                                        DanceInstructorUIController.userSequence = poseDataProcessing
+                                                        .processPoseData(poseDataReader.readPoseSequence(fileName));
+                                        DanceInstructorUIController.userKeypointsMap = DanceInstructorUIController.userSequence
+                                                        .toMap();
                                 } else {
                                         DanceInstructorUIController.isProInput = true;
-                                        DanceInstructorUIController.proKeypointsMap = poseDataReader
-                                                        .readKeypointsFromFile(fileName);
-                                        DanceInstructorUIController.proKeypointsMap = poseDataProcessing
-                                                        .processPoseData(DanceInstructorUIController.proKeypointsMap);
+                                        DanceInstructorUIController.proSequence = poseDataProcessing
+                                                        .processPoseData(poseDataReader.readPoseSequence(fileName));
+                                        DanceInstructorUIController.proProfile = ReferenceProfile.compile("pro",
+                                                        DanceInstructorUIController.proSequence);
+                                        DanceInstructorUIController.proKeypointsMap = DanceInstructorUIController.proSequence
+                                                        .toMap();
                                 }
                                 System.out.println("Local processing successful for: " + videoPath);
                         }
@@ -0,0 +1,366 @@
+package com.instructor.controller;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import com.instructor.algorithms.DtwEngine;
+import com.instructor.algorithms.DynamicTimeWarping;
+import com.instructor.algorithms.ExactDtw;
+import com.instructor.algorithms.ReferenceProfile;
+import com.instructor.data.PoseDataReader;
+
+/**
+ * Computes the symmetric matrix of totalDtw distances between every pair of
+ * keypoint files of a library directory, e.g. to cluster or deduplicate the
+ * motion database.
+ *
+ * Only the upper triangle is computed, one pair per executor task. Every
+ * finished pair is appended to a checkpoint file next to the output, so a job
+ * that is killed resumes where it stopped when run again over the same files.
+ * The finished matrix is written in a compact binary format (see writeMatrix)
+ * and the checkpoint is deleted.
+ */
+public class PairwiseDistanceJob {
+    // "PDCK" and "PDMX" in ASCII
+    private static final int CHECKPOINT_MAGIC = 0x5044434b;
+    private static final int MATRIX_MAGIC = 0x50444d58;
+
+    // Checkpoint record: row, column, distance
+    private static final int RECORD_BYTES = 12;
+
+    private final Path directory;
+    private final Path output;
+    private final Path checkpoint;
+    private final DtwEngine engine;
+    private final ExecutorService executor;
+    private List<String> names = new ArrayList<>();
+
+    /**
+     * Job with exact DTW on the common fork-join pool.
+     *
+     * @param directory Library directory, searched recursively for .txt files
+     * @param output    Matrix file to write
+     */
+    public PairwiseDistanceJob(Path directory, Path output) {
+        this(directory, output, new ExactDtw(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param directory Library directory, searched recursively for .txt files
+     * @param output    Matrix file to write
+     * @param engine    DTW implementation used for every joint
+     * @param executor  Executor running the pairs
+     */
+    public PairwiseDistanceJob(Path directory, Path output, DtwEngine engine, ExecutorService executor) {
+        this.directory = directory;
+        this.output = output;
+        this.checkpoint = output.resolveSibling(output.getFileName() + ".checkpoint");
+        this.engine = engine;
+        this.executor = executor;
+    }
+
+    /**
+     * @return Library entries of the last run, as paths relative to the library
+     *         directory, in matrix order
+     */
+    public List<String> getNames() {
+        return names;
+    }
+
+    public Path getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Runs the job, resuming from the checkpoint if one matches the library.
+     *
+     * @return Distance matrix, rows and columns in getNames() order
+     * @throws IOException If the library cannot be listed, a library file
+     *                     cannot be read or is malformed, or a result file
+     *                     cannot be written
+     */
+    public float[][] run() throws IOException {
+        List<Path> files = PoseDataReader.listKeypointFiles(directory);
+        names = new ArrayList<>();
+        for (Path file : files) {
+            names.add(directory.relativize(file).toString().replace('\\', '/'));
+        }
+        int n = files.size();
+
+        float[][] matrix = new float[n][n];
+        BitSet done = new BitSet();
+        int resumed = resume(matrix, done);
+        if (resumed > 0) {
+            System.out.println("Resuming from checkpoint: " + resumed + " of " + pairCount(n) + " pairs done");
+        }
+
+        // Every file is read and processed once, not once per pair. Files too
+        // small to split are loaded one per task; large files are parsed in
+        // ranges on the executor from this thread, as a task waiting for tasks
+        // of its own executor could wait forever on a fixed-size pool
+        List<Future<ReferenceProfile>> loads = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String name = names.get(i);
+            Path file = files.get(i);
+            loads.add(PoseDataReader.isReadInParallel(file) ? null
+                    : executor.submit(() -> ReferenceProfile.load(name, file)));
+        }
+        List<ReferenceProfile> profiles = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Future<ReferenceProfile> load = loads.get(i);
+            profiles.add(load != null ? await(load) : ReferenceProfile.load(names.get(i), files.get(i), executor));
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(checkpoint, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+            if (resumed < 0) {
+                out.write(checkpointHeader());
+                out.flush();
+            }
+
+            List<Future<?>> pairs = new ArrayList<>();
+            try {
+                // Upper triangle only, the matrix is symmetric
+                for (int i = 0; i < n; i++) {
+                    for (int j = i + 1; j < n; j++) {
+                        if (done.get(pairIndex(i, j, n))) {
+                            continue;
+                        }
+                        int row = i;
+                        int column = j;
+                        pairs.add(executor.submit(() -> {
+                            float distance = DynamicTimeWarping.totalDtw(profiles.get(row).getSequence(),
+                                    profiles.get(column).getSequence(), engine);
+                            matrix[row][column] = distance;
+                            matrix[column][row] = distance;
+                            appendRecord(out, row, column, distance);
+                            return null;
+                        }));
+                    }
+                }
+                for (Future<?> pair : pairs) {
+                    await(pair);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Pairs still running append to the checkpoint; let them finish
+                // before it is closed so the next run keeps their work
+                settle(pairs);
+                throw e;
+            }
+        }
+
+        writeMatrix(output, names, matrix);
+        Files.deleteIfExists(checkpoint);
+        return matrix;
+    }
+
+    /**
+     * Writes a symmetric distance matrix: magic, entry count, entry names
+     * (modified UTF-8), then the upper triangle row by row as big-endian floats.
+     * The diagonal is not stored.
+     *
+     * @param file   Output file, replaced atomically
+     * @param names  Name of every row and column
+     * @param matrix Symmetric matrix with a zero diagonal
+     * @throws IOException If the file cannot be written
+     */
+    public static void writeMatrix(Path file, List<String> names, float[][] matrix) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MATRIX_MAGIC);
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+            for (int i = 0; i < matrix.length; i++) {
+                for (int j = i + 1; j < matrix.length; j++) {
+                    out.writeFloat(matrix[i][j]);
+                }
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads a matrix written by writeMatrix.
+     *
+     * @param file  Matrix file
+     * @param names List receiving the entry names, or null
+     * @return The full symmetric matrix
+     * @throws IOException If the file cannot be read or is not a distance matrix
+     */
+    public static float[][] readMatrix(Path file, List<String> names) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MATRIX_MAGIC) {
+                throw new IOException("Not a distance matrix file: " + file);
+            }
+            int n = in.readInt();
+            for (int k = 0; k < n; k++) {
+                String name = in.readUTF();
+                if (names != null) {
+                    names.add(name);
+                }
+            }
+
+            float[][] matrix = new float[n][n];
+            for (int i = 0; i < n; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    matrix[i][j] = in.readFloat();
+                    matrix[j][i] = matrix[i][j];
+                }
+            }
+            return matrix;
+        }
+    }
+
+    /**
+     * Loads the pairs of a checkpoint written for the same library and cuts off a
+     * record left incomplete by a killed run.
+     *
+     * @return Number of pairs restored, or -1 if there is no usable checkpoint
+     */
+    private int resume(float[][] matrix, BitSet done) throws IOException {
+        if (!Files.exists(checkpoint)) {
+            return -1;
+        }
+
+        byte[] header = checkpointHeader();
+        int n = matrix.length;
+        int restored = 0;
+        long valid = header.length;
+        try (InputStream stream = new BufferedInputStream(Files.newInputStream(checkpoint))) {
+            byte[] existing = stream.readNBytes(header.length);
+            if (!Arrays.equals(existing, header)) {
+                // Written for another library or engine, start over
+                Files.delete(checkpoint);
+                return -1;
+            }
+
+            DataInputStream in = new DataInputStream(stream);
+            while (true) {
+                int i;
+                int j;
+                float distance;
+                try {
+                    i = in.readInt();
+                    j = in.readInt();
+                    distance = in.readFloat();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (i < 0 || j <= i || j >= n) {
+                    break;
+                }
+                matrix[i][j] = distance;
+                matrix[j][i] = distance;
+                if (!done.get(pairIndex(i, j, n))) {
+                    done.set(pairIndex(i, j, n));
+                    restored++;
+                }
+                valid += RECORD_BYTES;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(checkpoint, StandardOpenOption.WRITE)) {
+            channel.truncate(valid);
+        }
+        return restored;
+    }
+
+    /**
+     * Identifies the library and engine a checkpoint belongs to.
+     */
+    private byte[] checkpointHeader() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeUTF(engine.toString());
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Appends one finished pair and flushes it, so it survives the process being
+     * killed.
+     */
+    private static void appendRecord(DataOutputStream out, int i, int j, float distance) throws IOException {
+        synchronized (out) {
+            out.writeInt(i);
+            out.writeInt(j);
+            out.writeFloat(distance);
+            out.flush();
+        }
+    }
+
+    /**
+     * Waits for every task to end, ignoring their outcome.
+     */
+    private static void settle(List<Future<?>> tasks) {
+        for (Future<?> task : tasks) {
+            try {
+                task.get();
+            } catch (ExecutionException | CancellationException ignored) {
+                // The caller reports the failure that stopped the job
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static int pairIndex(int i, int j, int n) {
+        // Row-major position of (i, j) in the strict upper triangle
+        return i * (2 * n - i - 1) / 2 + (j - i - 1);
+    }
+
+    private static int pairCount(int n) {
+        return n * (n - 1) / 2;
+    }
+
+    /**
+     * Waits for a task, rethrowing its failure.
+     */
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while computing the distance matrix", e);
+        } catch (ExecutionException e) {
+            // A fork-join pool wraps the IOException of a Callable in runtime exceptions
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+}
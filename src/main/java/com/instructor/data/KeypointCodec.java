@@ -0,0 +1,339 @@
+package com.instructor.data;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Lossy compact codec for archiving pose sequences, e.g. user sessions kept on
+ * S3.
+ *
+ * Coordinates are quantized with a step of twice the error bound, so every
+ * decoded value lies within the bound of the original (plus float rounding),
+ * and stored as int16 fixed-point relative to a per-joint, per-axis base.
+ * Each joint is written as its missing-frame runs, its base, and the xyz
+ * deltas between consecutive captured frames, zigzag varint coded; a keypoint
+ * moves little between frames, so most deltas take a single byte. The
+ * default bound is half the 0.0001 resolution of the text format, at which a
+ * text file decodes to exactly the values the text reader parses (a -0.0
+ * comes back as 0.0).
+ *
+ * Encoding writes and decoding reads the stream front to back through a small
+ * buffer, so neither needs the encoded sequence in memory.
+ */
+public class KeypointCodec {
+    public static final float DEFAULT_MAX_ERROR = 0.00005f;
+
+    // "PKZ" in ASCII and the format version
+    private static final int MAGIC = 0x504b5a01;
+
+    private static final int BUFFER_BYTES = 8192;
+
+    // Header limits checked before decode allocates anything, far above any
+    // capture (2^28 coordinates is a GB of floats), so a corrupt or hostile
+    // header fails with an IOException instead of exhausting memory
+    private static final int MAX_JOINTS = 1 << 16;
+    private static final long MAX_COORDINATES = 1L << 28;
+    private static final int MAX_NAME_BYTES = 0xffff;
+
+    private final float maxError;
+    private final float scale;
+
+    /**
+     * Codec with the resolution of the text format.
+     */
+    public KeypointCodec() {
+        this(DEFAULT_MAX_ERROR);
+    }
+
+    /**
+     * @param maxError Largest absolute error of a decoded coordinate. The int16
+     *                 range limits the span of a joint's coordinates on one axis
+     *                 to about 131070 times this bound.
+     */
+    public KeypointCodec(float maxError) {
+        if (!(maxError > 0) || Float.isInfinite(maxError)) {
+            throw new IllegalArgumentException("Error bound must be positive: " + maxError);
+        }
+        this.maxError = maxError;
+        this.scale = (float) (0.5 / maxError); // Quanta per unit
+    }
+
+    public float getMaxError() {
+        return maxError;
+    }
+
+    /**
+     * Encodes a sequence. The stream is flushed, not closed.
+     *
+     * @param sequence Sequence to encode
+     * @param out      Stream receiving the encoded sequence
+     * @throws IOException              If the stream cannot be written
+     * @throws IllegalArgumentException If a coordinate is not finite or a joint
+     *                                  spans more than int16 at this error bound
+     */
+    public void encode(PoseSequence sequence, OutputStream out) throws IOException {
+        Output output = new Output(out);
+        output.writeInt(MAGIC);
+        output.writeInt(Float.floatToIntBits(scale));
+        output.writeVarint(zigzag(sequence.getFirstFrame()));
+        output.writeVarint(sequence.getFrameCount());
+        output.writeVarint(sequence.getJointCount());
+        for (int j = 0; j < sequence.getJointCount(); j++) {
+            byte[] name = sequence.getJointName(j).getBytes(StandardCharsets.UTF_8);
+            output.writeVarint(name.length);
+            output.write(name);
+        }
+
+        float[] coordinates = sequence.getCoordinates();
+        int frameCount = sequence.getFrameCount();
+        int[] quantized = new int[frameCount * 3];
+        for (int j = 0; j < sequence.getJointCount(); j++) {
+            // Alternating runs of missing and captured frames, missing first
+            boolean captured = false;
+            int run = 0;
+            for (int f = 0; f < frameCount; f++) {
+                if (sequence.isPresent(j, f) != captured) {
+                    output.writeVarint(run);
+                    captured = !captured;
+                    run = 0;
+                }
+                run++;
+            }
+            output.writeVarint(run);
+
+            int count = 0;
+            for (int f = 0; f < frameCount; f++) {
+                if (sequence.isPresent(j, f)) {
+                    int offset = sequence.offset(j, f);
+                    quantized[count++] = quantize(coordinates[offset]);
+                    quantized[count++] = quantize(coordinates[offset + 1]);
+                    quantized[count++] = quantize(coordinates[offset + 2]);
+                }
+            }
+
+            // Base in the middle of each axis' range, so the values fit int16 around it
+            int[] previous = new int[3];
+            for (int axis = 0; axis < 3; axis++) {
+                int min = Integer.MAX_VALUE;
+                int max = Integer.MIN_VALUE;
+                for (int k = axis; k < count; k += 3) {
+                    min = Math.min(min, quantized[k]);
+                    max = Math.max(max, quantized[k]);
+                }
+                int base = count == 0 ? 0 : (int) (((long) min + max) / 2);
+                if (count > 0 && (min - base < Short.MIN_VALUE || max - base > Short.MAX_VALUE)) {
+                    throw new IllegalArgumentException("Coordinates of " + sequence.getJointName(j)
+                            + " span more than int16 at error bound " + maxError);
+                }
+                output.writeVarint(zigzag(base));
+                previous[axis] = base;
+            }
+
+            // Deltas of the captured frames, per axis, starting from the base
+            for (int k = 0; k < count; k++) {
+                int axis = k % 3;
+                output.writeVarint(zigzag(quantized[k] - previous[axis]));
+                previous[axis] = quantized[k];
+            }
+        }
+        output.flush();
+    }
+
+    /**
+     * Decodes a sequence written by encode, with the error bound it was encoded
+     * with. The stream is read ahead in chunks, so it should hold this sequence
+     * only, e.g. one file or S3 object per sequence.
+     *
+     * @param in Stream positioned at an encoded sequence
+     * @return The decoded sequence
+     * @throws IOException If the stream cannot be read, ends early, does not
+     *                     hold an encoded sequence or declares one too large
+     *                     to decode
+     */
+    public static PoseSequence decode(InputStream in) throws IOException {
+        Input input = new Input(in);
+        if (input.readInt() != MAGIC) {
+            throw new IOException("Not an encoded pose sequence");
+        }
+        float scale = Float.intBitsToFloat(input.readInt());
+        int firstFrame = unzigzag(input.readVarint());
+        int frameCount = input.readVarint();
+        int jointCount = input.readVarint();
+        if (!(scale > 0) || frameCount < 0 || jointCount < 0 || jointCount > MAX_JOINTS
+                || (long) jointCount * frameCount * 3 > MAX_COORDINATES) {
+            throw new IOException("Corrupt encoded pose sequence header");
+        }
+
+        String[] joints = new String[jointCount];
+        for (int j = 0; j < jointCount; j++) {
+            int length = input.readVarint();
+            if (length < 0 || length > MAX_NAME_BYTES) {
+                throw new IOException("Corrupt joint name length " + length);
+            }
+            byte[] name = new byte[length];
+            input.readFully(name);
+            joints[j] = new String(name, StandardCharsets.UTF_8);
+        }
+
+        PoseSequence sequence = new PoseSequence(joints, firstFrame, frameCount);
+        int[] captured = new int[frameCount];
+        for (int j = 0; j < jointCount; j++) {
+            // Runs until every frame is covered; there is always a first one
+            int count = 0;
+            boolean present = false;
+            int f = 0;
+            do {
+                int run = input.readVarint();
+                if (run < 0 || run > frameCount - f) {
+                    throw new IOException("Corrupt frame runs of joint " + joints[j]);
+                }
+                if (present) {
+                    for (int k = 0; k < run; k++) {
+                        captured[count++] = f + k;
+                    }
+                }
+                f += run;
+                present = !present;
+            } while (f < frameCount);
+
+            int x = unzigzag(input.readVarint());
+            int y = unzigzag(input.readVarint());
+            int z = unzigzag(input.readVarint());
+            for (int k = 0; k < count; k++) {
+                x += unzigzag(input.readVarint());
+                y += unzigzag(input.readVarint());
+                z += unzigzag(input.readVarint());
+                sequence.set(j, captured[k], x / scale, y / scale, z / scale);
+            }
+        }
+        return sequence;
+    }
+
+    private int quantize(float value) {
+        if (!Float.isFinite(value)) {
+            throw new IllegalArgumentException("Cannot encode coordinate " + value);
+        }
+        // Half the int range, so differences of two values cannot overflow
+        long quantized = Math.round((double) value * scale);
+        if (Math.abs(quantized) > Integer.MAX_VALUE / 2) {
+            throw new IllegalArgumentException("Coordinate " + value + " out of range for error bound " + maxError);
+        }
+        return (int) quantized;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Buffered writer of bytes, big-endian ints and unsigned LEB128 varints.
+     */
+    private static final class Output {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private int size;
+
+        Output(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeVarint(int value) throws IOException {
+            if (size > BUFFER_BYTES - 5) {
+                drain();
+            }
+            while ((value & ~0x7f) != 0) {
+                buffer[size++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            buffer[size++] = (byte) value;
+        }
+
+        void writeInt(int value) throws IOException {
+            for (int shift = 24; shift >= 0; shift -= 8) {
+                write((byte) (value >>> shift));
+            }
+        }
+
+        void write(byte[] bytes) throws IOException {
+            for (byte b : bytes) {
+                write(b);
+            }
+        }
+
+        private void write(byte b) throws IOException {
+            if (size == BUFFER_BYTES) {
+                drain();
+            }
+            buffer[size++] = b;
+        }
+
+        void flush() throws IOException {
+            drain();
+            out.flush();
+        }
+
+        private void drain() throws IOException {
+            out.write(buffer, 0, size);
+            size = 0;
+        }
+    }
+
+    /**
+     * Buffered reader matching Output.
+     */
+    private static final class Input {
+        private final InputStream in;
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private int position;
+        private int limit;
+
+        Input(InputStream in) {
+            this.in = in;
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = read();
+                value |= (b & 0x7f) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        int readInt() throws IOException {
+            int value = 0;
+            for (int k = 0; k < 4; k++) {
+                value = (value << 8) | (read() & 0xff);
+            }
+            return value;
+        }
+
+        void readFully(byte[] bytes) throws IOException {
+            for (int k = 0; k < bytes.length; k++) {
+                bytes[k] = read();
+            }
+        }
+
+        private byte read() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    throw new EOFException("Encoded pose sequence ends early");
+                }
+            }
+            return buffer[position++];
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.instructor.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Growable per-joint primitive buffers used while a keypoint file is being
+ * parsed, before the frame range of the recording is known.
+ */
+class KeypointColumns {
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+
+    /**
+     * Starts (or restarts) the column for a joint. A joint appearing twice in a
+     * file replaces its earlier block, matching the map based reader.
+     */
+    Column startJoint(String name) {
+        Column column = new Column();
+        columns.put(name, column);
+        return column;
+    }
+
+    /**
+     * @return Column of a joint, created empty on first use, for input that is
+     *         not grouped by joint
+     */
+    Column column(String name) {
+        return columns.computeIfAbsent(name, key -> new Column());
+    }
+
+    /**
+     * Appends the joints of columns parsed from a later part of the same file.
+     * As with startJoint, a joint already present is replaced in place.
+     */
+    void addAll(KeypointColumns later) {
+        columns.putAll(later.columns);
+    }
+
+    /**
+     * @return Sequence spanning the smallest to the largest frame number seen
+     */
+    PoseSequence toSequence() {
+        String[] names = columns.keySet().toArray(new String[0]);
+        int minFrame = Integer.MAX_VALUE;
+        int maxFrame = Integer.MIN_VALUE;
+
+        for (Column column : columns.values()) {
+            for (int k = 0; k < column.size; k++) {
+                minFrame = Math.min(minFrame, column.frames[k]);
+                maxFrame = Math.max(maxFrame, column.frames[k]);
+            }
+        }
+
+        if (minFrame > maxFrame) {
+            return new PoseSequence(names, 0, 0);
+        }
+
+        PoseSequence sequence = new PoseSequence(names, minFrame, maxFrame - minFrame + 1);
+        List<Column> ordered = new ArrayList<>(columns.values());
+        for (int j = 0; j < ordered.size(); j++) {
+            Column column = ordered.get(j);
+            for (int k = 0; k < column.size; k++) {
+                sequence.set(j, column.frames[k] - minFrame, column.xyz[k * 3], column.xyz[k * 3 + 1],
+                        column.xyz[k * 3 + 2]);
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Frame numbers and coordinates of one joint, in file order.
+     */
+    static class Column {
+        int[] frames = new int[64];
+        float[] xyz = new float[64 * 3];
+        int size;
+
+        void add(int frame, float x, float y, float z) {
+            if (size == frames.length) {
+                frames = Arrays.copyOf(frames, size * 2);
+                xyz = Arrays.copyOf(xyz, size * 6);
+            }
+            frames[size] = frame;
+            xyz[size * 3] = x;
+            xyz[size * 3 + 1] = y;
+            xyz[size * 3 + 2] = z;
+            size++;
+        }
+    }
+}
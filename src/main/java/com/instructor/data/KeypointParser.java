@@ -0,0 +1,281 @@
+package com.instructor.data;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser of the keypoint text format working on the raw bytes of a file:
+ *
+ * <pre>
+ * nose:
+ *   Frame 0: x=0.4861, y=0.3312, z=-0.0307
+ * </pre>
+ *
+ * Lines are delimited by index, not copied, and frame numbers and plain
+ * decimal coordinates are accumulated digit by digit, so a frame line creates
+ * no objects at all; only joint names become Strings. Values the fast path
+ * does not cover (exponents, NaN, very long mantissas) are handed to
+ * Float.parseFloat, so every value is exactly what the line-based reader
+ * produced.
+ */
+final class KeypointParser {
+    // Powers of ten exactly representable as floats
+    private static final float[] POWERS_OF_TEN = { 1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f,
+            1e10f };
+
+    // Mantissas below 2^24 are exact floats, so one float division rounds once
+    private static final long MAX_EXACT_MANTISSA = 1L << 24;
+
+    private final byte[] buffer;
+    private final int from;
+    private final int to;
+
+    // Values of the last parsed frame line
+    private int frame;
+    private final float[] values = new float[3];
+
+    private KeypointParser(byte[] buffer, int from, int to) {
+        this.buffer = buffer;
+        this.from = from;
+        this.to = to;
+    }
+
+    /**
+     * Parses a whole file into the columns, one block per joint.
+     *
+     * @param buffer  File contents
+     * @param length  Number of valid bytes in the buffer
+     * @param columns Columns receiving every frame line
+     * @throws NumberFormatException If a frame line holds a malformed number
+     */
+    static void parse(byte[] buffer, int length, KeypointColumns columns) {
+        parse(buffer, 0, length, columns);
+    }
+
+    /**
+     * Parses the lines of buffer[from, to) into the columns. Lines before the
+     * first joint header are ignored, so a range of a larger file should start
+     * at a header found with nextBlock.
+     *
+     * @param buffer  File contents
+     * @param from    First byte, at the start of a line
+     * @param to      End of the range, at the start of a line or the end of file
+     * @param columns Columns receiving every frame line
+     * @throws NumberFormatException If a frame line holds a malformed number
+     */
+    static void parse(byte[] buffer, int from, int to, KeypointColumns columns) {
+        new KeypointParser(buffer, from, to).parseInto(columns);
+    }
+
+    /**
+     * Finds the first joint header ("name:") starting at or after a position of
+     * a file, e.g. a memory-mapped one. The search starts at the beginning of the
+     * next line unless the position already is one, so any byte offset can be
+     * used as a split point.
+     *
+     * @param buffer File contents, read with absolute gets only
+     * @param from   Split point
+     * @param to     End of the file
+     * @return Offset of the header line, or to if there is none
+     */
+    static int nextBlock(ByteBuffer buffer, int from, int to) {
+        int lineStart = from;
+        if (lineStart > 0) {
+            while (lineStart < to && buffer.get(lineStart - 1) != '\n') {
+                lineStart++;
+            }
+        }
+
+        while (lineStart < to) {
+            int lineEnd = lineStart;
+            while (lineEnd < to && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            // Last non-whitespace byte of the line
+            int last = lineEnd - 1;
+            while (last >= lineStart && (buffer.get(last) & 0xff) <= ' ') {
+                last--;
+            }
+            if (last >= lineStart && buffer.get(last) == ':') {
+                return lineStart;
+            }
+            lineStart = lineEnd + 1;
+        }
+        return to;
+    }
+
+    private void parseInto(KeypointColumns columns) {
+        KeypointColumns.Column current = null; // Column of the keypoint being processed
+        int lineStart = from;
+
+        while (lineStart < to) {
+            int lineEnd = indexOf(buffer, (byte) '\n', lineStart, to);
+            if (lineEnd < 0) {
+                lineEnd = to;
+            }
+
+            // Same bounds as String.trim() on the line
+            int start = skipWhitespace(buffer, lineStart, lineEnd);
+            int end = trimEnd(buffer, start, lineEnd);
+
+            if (end > start && buffer[end - 1] == ':') {
+                // New keypoint block
+                String name = new String(buffer, start, end - 1 - start, StandardCharsets.UTF_8).trim();
+                current = columns.startJoint(name);
+
+            } else if (current != null && parseFrameLine(start, end)) {
+                current.add(frame, values[0], values[1], values[2]);
+            }
+
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Parses "Frame N: x=val, y=val, z=val" into frame and values.
+     *
+     * @return False if the line is not a frame line
+     */
+    private boolean parseFrameLine(int start, int end) {
+        int colon = indexOf(buffer, (byte) ':', start, end);
+        int space = indexOf(buffer, (byte) ' ', start, end);
+        if (colon <= start || space <= start || space > colon) {
+            return false;
+        }
+
+        frame = parseInt(buffer, space + 1, colon);
+        parseValues(buffer, colon + 1, end, values);
+        return true;
+    }
+
+    /**
+     * Parses the "x=val, y=val, z=val" pairs of buffer[start, end) into values;
+     * a missing one is 0. Shared with the live stream, so both round alike.
+     *
+     * @throws NumberFormatException If a pair lacks its '=' or a value is
+     *                               malformed
+     */
+    static void parseValues(byte[] buffer, int start, int end, float[] values) {
+        values[0] = 0;
+        values[1] = 0;
+        values[2] = 0;
+        int from = start;
+        for (int i = 0; i < 3 && from < end; i++) {
+            int equals = indexOf(buffer, (byte) '=', from, end);
+            if (equals < 0) {
+                throw new NumberFormatException("Missing '=' in: " + text(buffer, start, end));
+            }
+            int comma = indexOf(buffer, (byte) ',', equals, end);
+            int valueEnd = comma < 0 ? end : comma;
+            values[i] = parseFloat(buffer, equals + 1, valueEnd);
+            from = valueEnd + 1;
+        }
+    }
+
+    /**
+     * Parses an optionally signed decimal integer surrounded by whitespace.
+     *
+     * @throws NumberFormatException If buffer[start, end) is not an int
+     */
+    static int parseInt(byte[] buffer, int start, int end) {
+        start = skipWhitespace(buffer, start, end);
+        end = trimEnd(buffer, start, end);
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+
+        long value = 0;
+        int digits = 0;
+        for (; i < end; i++, digits++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9 || digits > 9) {
+                return Integer.parseInt(text(buffer, start, end)); // Malformed or too long, let the JDK decide
+            }
+            value = value * 10 + digit;
+        }
+        if (digits == 0) {
+            return Integer.parseInt(text(buffer, start, end));
+        }
+
+        value = negative ? -value : value;
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return Integer.parseInt(text(buffer, start, end));
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a plain decimal number such as -0.0307 surrounded by whitespace. The
+     * mantissa is accumulated as an integer and divided once by a power of ten,
+     * which rounds exactly like Float.parseFloat while both are exact floats.
+     */
+    private static float parseFloat(byte[] buffer, int start, int end) {
+        start = skipWhitespace(buffer, start, end);
+        end = trimEnd(buffer, start, end);
+
+        int i = start;
+        boolean negative = false;
+        if (i < end && (buffer[i] == '-' || buffer[i] == '+')) {
+            negative = buffer[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1; // -1 until the decimal point is seen
+        for (; i < end; i++) {
+            byte b = buffer[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+                if (mantissa >= MAX_EXACT_MANTISSA) {
+                    return Float.parseFloat(text(buffer, start, end));
+                }
+            } else if (b == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return Float.parseFloat(text(buffer, start, end)); // Exponent, NaN, Infinity or malformed
+            }
+        }
+        if (digits == 0 || fractionDigits >= POWERS_OF_TEN.length) {
+            return Float.parseFloat(text(buffer, start, end));
+        }
+
+        float value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    static int indexOf(byte[] buffer, byte target, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static int skipWhitespace(byte[] buffer, int start, int end) {
+        while (start < end && (buffer[start] & 0xff) <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    static int trimEnd(byte[] buffer, int start, int end) {
+        while (end > start && (buffer[end - 1] & 0xff) <= ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static String text(byte[] buffer, int start, int end) {
+        return new String(buffer, start, end - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,265 @@
+package com.instructor.data;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Follows the live keypoints file a capture is still writing and delivers its
+ * frames in batches as they are completed, so downstream stages can run while
+ * the performance is being recorded.
+ *
+ * The live file is written frame by frame by pose_detection/PoseDetection.py
+ * next to the regular keypoints file, which is only written once the capture
+ * ends:
+ *
+ * <pre>
+ * Frame 12:
+ *   nose: x=0.4861, y=0.3312, z=-0.0307
+ *   shoulder_left: x=0.5523, y=0.4410, z=-0.1204
+ *
+ * End
+ * </pre>
+ *
+ * A frame is complete at its blank line; "End" marks the end of the capture.
+ * A capture that stops writing without the marker ends the stream after an
+ * idle timeout, dropping the frame it left incomplete.
+ *
+ * As an Iterator, hasNext() waits for the next batch; poll() returns what is
+ * available without waiting.
+ */
+public class KeypointStream implements Iterator<List<PoseFrame>>, Closeable {
+    public static final String LIVE_EXTENSION = ".live";
+    public static final long DEFAULT_IDLE_TIMEOUT_MILLIS = 10_000;
+
+    private static final long POLL_MILLIS = 20;
+    private static final byte[] END_MARKER = "End".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FRAME_PREFIX = "Frame ".getBytes(StandardCharsets.US_ASCII);
+
+    private final Path file;
+    private final long idleTimeoutMillis;
+    private FileChannel channel;
+    private final ByteBuffer chunk = ByteBuffer.allocate(8192);
+    private long lastDataTime = System.currentTimeMillis();
+    private boolean finished;
+
+    // Bytes of the line being read
+    private byte[] line = new byte[128];
+    private int lineLength;
+
+    // Frame being read, -1 between frames
+    private int currentFrame = -1;
+    private Map<String, float[]> currentJoints;
+
+    private List<PoseFrame> ready = new ArrayList<>();
+    private final KeypointColumns columns = new KeypointColumns();
+
+    /**
+     * @param file Live keypoints file, which may not exist yet
+     */
+    public KeypointStream(Path file) {
+        this(file, DEFAULT_IDLE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @param file              Live keypoints file, which may not exist yet
+     * @param idleTimeoutMillis Time without new data after which the capture is
+     *                          considered stopped
+     */
+    public KeypointStream(Path file, long idleTimeoutMillis) {
+        this.file = file;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+    }
+
+    /**
+     * Reads what was appended to the file since the last call, without waiting.
+     *
+     * @return Frames completed since the last batch, in capture order; empty if
+     *         there are none
+     * @throws IOException If the file cannot be read or holds a malformed line
+     */
+    public List<PoseFrame> poll() throws IOException {
+        read();
+        List<PoseFrame> batch = ready;
+        ready = new ArrayList<>();
+        return batch;
+    }
+
+    /**
+     * Waits until a batch of frames is available or the capture has ended.
+     *
+     * @throws UncheckedIOException If the file cannot be read or holds a
+     *                              malformed line
+     */
+    @Override
+    public boolean hasNext() {
+        try {
+            while (ready.isEmpty() && !finished) {
+                read();
+                if (ready.isEmpty() && !finished) {
+                    Thread.sleep(POLL_MILLIS);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            finished = true;
+        }
+        return !ready.isEmpty();
+    }
+
+    /**
+     * @return The next batch of completed frames, never empty
+     */
+    @Override
+    public List<PoseFrame> next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        List<PoseFrame> batch = ready;
+        ready = new ArrayList<>();
+        return batch;
+    }
+
+    /**
+     * @return True once the end marker was read or the capture timed out
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * @return Every frame completed so far as a sequence, joints in the order
+     *         they were first captured
+     */
+    public PoseSequence toSequence() {
+        return columns.toSequence();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finished = true;
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void read() throws IOException {
+        if (finished) {
+            return;
+        }
+        if (channel == null) {
+            if (!Files.exists(file)) {
+                checkIdle();
+                return;
+            }
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+        }
+
+        boolean received = false;
+        while (!finished && channel.read(chunk) > 0) {
+            received = true;
+            chunk.flip();
+            while (chunk.hasRemaining() && !finished) {
+                byte b = chunk.get();
+                if (b == '\n') {
+                    handleLine();
+                    lineLength = 0;
+                } else {
+                    if (lineLength == line.length) {
+                        line = Arrays.copyOf(line, lineLength * 2);
+                    }
+                    line[lineLength++] = b;
+                }
+            }
+            chunk.clear();
+        }
+
+        if (received) {
+            lastDataTime = System.currentTimeMillis();
+        } else {
+            checkIdle();
+        }
+    }
+
+    private void checkIdle() {
+        if (System.currentTimeMillis() - lastDataTime > idleTimeoutMillis) {
+            finished = true;
+        }
+    }
+
+    /**
+     * Handles the buffered line, parsed from its bytes with the text reader's
+     * number parsing, so the live and file paths produce the same values.
+     */
+    private void handleLine() throws IOException {
+        // Same bounds as String.trim() on the line
+        int start = KeypointParser.skipWhitespace(line, 0, lineLength);
+        int end = KeypointParser.trimEnd(line, start, lineLength);
+
+        try {
+            if (start == end) {
+                completeFrame();
+
+            } else if (matches(start, end, END_MARKER)) {
+                completeFrame();
+                finished = true;
+
+            } else if (line[end - 1] == ':' && end - start > FRAME_PREFIX.length
+                    && matches(start, start + FRAME_PREFIX.length, FRAME_PREFIX)) {
+                completeFrame();
+                currentFrame = KeypointParser.parseInt(line, start + FRAME_PREFIX.length, end - 1);
+                currentJoints = new LinkedHashMap<>();
+
+            } else if (currentJoints != null) {
+                // "name: x=val, y=val, z=val"
+                int colon = KeypointParser.indexOf(line, (byte) ':', start, end);
+                if (colon <= start) {
+                    throw malformed(start, end, null);
+                }
+                String name = new String(line, start, colon - start, StandardCharsets.UTF_8).trim();
+                float[] coordinates = new float[3];
+                KeypointParser.parseValues(line, colon + 1, end, coordinates);
+                currentJoints.put(name, coordinates);
+            }
+        } catch (NumberFormatException e) {
+            throw malformed(start, end, e);
+        }
+    }
+
+    private IOException malformed(int start, int end, NumberFormatException cause) {
+        return new IOException("Malformed live keypoints line: "
+                + new String(line, start, end - start, StandardCharsets.UTF_8), cause);
+    }
+
+    private boolean matches(int start, int end, byte[] expected) {
+        return Arrays.equals(line, start, end, expected, 0, expected.length);
+    }
+
+    private void completeFrame() {
+        if (currentJoints == null) {
+            return;
+        }
+        for (Map.Entry<String, float[]> joint : currentJoints.entrySet()) {
+            float[] coordinates = joint.getValue();
+            columns.column(joint.getKey()).add(currentFrame, coordinates[0], coordinates[1], coordinates[2]);
+        }
+        ready.add(new PoseFrame(currentFrame, currentJoints));
+        currentFrame = -1;
+        currentJoints = null;
+    }
+}
@@ -1,8 +1,7 @@
 package com.instructor.data;
 
-import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.List;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import com.instructor.algorithms.MergeSort;
@@ -93,9 +92,10 @@ public class PoseDataProcessing {
 		if (point1 == null || point2 == null) {
 			throw new IllegalArgumentException("Null points provided for distance calculation.");
 		}
-		return (float) Math.sqrt(Math.pow(point1[0] - point2[0], 2)
-				+ Math.pow(point1[1] - point2[1], 2)
-				+ Math.pow(point1[2] - point2[2], 2));
+		float dx = point1[0] - point2[0];
+		float dy = point1[1] - point2[1];
+		float dz = point1[2] - point2[2];
+		return (float) Math.sqrt((double) dx * dx + (double) dy * dy + (double) dz * dz);
 	}
 
 	/**
@@ -166,15 +166,14 @@ public class PoseDataProcessing {
 		// Iterate through each keypoint type in input data
 		for (String keypoint : keypoints.keySet()) {
 			Map<Integer, float[]> keypointFrames = keypoints.getOrDefault(keypoint, new HashMap<>());
-			List<Integer> frames = new ArrayList<>(keypointFrames.keySet());
-			MergeSort.mergeSort(frames, true); // Sort in ascending order
+			int[] frames = sortedFrames(keypointFrames);
 
 			Map<Integer, float[]> interpolatedFrames = new HashMap<>(keypointFrames); // Start with available data
 
 			// Interpolate values for missing frames by filling gap between known frames
-			for (int i = 0; i < frames.size() - 1; i++) {
-				int startFrame = frames.get(i); // Frame with known coordinates at the start of a gap
-				int endFrame = frames.get(i + 1); // Frame with known coordinates at the end of a gap
+			for (int i = 0; i < frames.length - 1; i++) {
+				int startFrame = frames[i]; // Frame with known coordinates at the start of a gap
+				int endFrame = frames[i + 1]; // Frame with known coordinates at the end of a gap
 				float[] startCoords = keypointFrames.get(startFrame); // Coordinates for startFrame
 				float[] endCoords = keypointFrames.get(endFrame); // Coordinates for endFrame
 
@@ -206,15 +205,15 @@ public class PoseDataProcessing {
 	 * algorithm doesn't know how to handle the edge frames, and it should be set to
 	 * the same value as the closest frame it knows about.
 	 * 
-	 * @param frames             List of all frames
+	 * @param frames             Sorted array of all frames
 	 * @param keypointFrames     Map of keypoints across frames
 	 * @param interpolatedFrames Map of keypoints with interpolated data for missing
 	 *                           frames
 	 */
-	private void handleEdgeFrames(List<Integer> frames, Map<Integer, float[]> keypointFrames,
+	private void handleEdgeFrames(int[] frames, Map<Integer, float[]> keypointFrames,
 			Map<Integer, float[]> interpolatedFrames) {
-		int firstFrame = frames.get(0);
-		int lastFrame = frames.get(frames.size() - 1);
+		int firstFrame = frames[0];
+		int lastFrame = frames[frames.length - 1];
 
 		// Extrapolate the first frame if necessary
 		if (!interpolatedFrames.containsKey(firstFrame)) {
@@ -227,6 +226,22 @@ public class PoseDataProcessing {
 		}
 	}
 
+	/**
+	 * Helper method to get the frame numbers of a keypoint in ascending order
+	 * 
+	 * @param keypointFrames Map of frames to coordinates
+	 * @return Sorted array of frame numbers
+	 */
+	private int[] sortedFrames(Map<Integer, float[]> keypointFrames) {
+		int[] frames = new int[keypointFrames.size()];
+		int i = 0;
+		for (int frame : keypointFrames.keySet()) {
+			frames[i++] = frame;
+		}
+		MergeSort.mergeSort(frames, true); // Sort in ascending order
+		return frames;
+	}
+
 	/**
 	 * Helper method to verify if coordinates are valid
 	 * 
@@ -286,12 +301,11 @@ public class PoseDataProcessing {
 			smoothedKeypoints.put(keypoint, new HashMap<>());
 
 			// Get sorted frame keys to ensure the window applies across available frame.
-			List<Integer> frames = new ArrayList<>(keypoints.get(keypoint).keySet());
-			MergeSort.mergeSort(frames, true); // Sort in ascending order
+			int[] frames = sortedFrames(keypoints.get(keypoint));
 
 			// Apply smoothing for each frame
-			for (int i = 0; i < frames.size(); i++) {
-				int currentFrame = frames.get(i);
+			for (int i = 0; i < frames.length; i++) {
+				int currentFrame = frames[i];
 				// Calculate the smoothed coordinates for current frame
 				float[] smoothedCoords = movingAverage(keypoints, keypoint, frames, i, windowSize);
 				// Store smoothed coordinates
@@ -306,12 +320,12 @@ public class PoseDataProcessing {
 	 * 
 	 * @param keypoints    Map containing all keypoint data
 	 * @param keypoint     Specific keypoint being smoothed
-	 * @param frames       Sorted lis of frames for this keypoint
+	 * @param frames       Sorted array of frames for this keypoint
 	 * @param currentIndex Current index in frame list
 	 * @param windowSize   Number of frames in smoothing window
 	 * @return The smoothed 3D coordinates for current frame
 	 */
-	private float[] movingAverage(Map<String, Map<Integer, float[]>> keypoints, String keypoint, List<Integer> frames,
+	private float[] movingAverage(Map<String, Map<Integer, float[]>> keypoints, String keypoint, int[] frames,
 			int currentIndex, int windowSize) {
 		int halfWindow = windowSize / 2; // Determine range on either side of current frame
 		float[] sum = new float[3]; // Array to hold cumulative sum of coordinates
@@ -321,11 +335,11 @@ public class PoseDataProcessing {
 		int start = Math.max(0, currentIndex - halfWindow);
 
 		// Calculate the ending index of smoothing window, at most < last frame index
-		int end = Math.min(currentIndex + halfWindow, frames.size() - 1);
+		int end = Math.min(currentIndex + halfWindow, frames.length - 1);
 
 		// Calculate the window range around the current frame index.
 		for (int i = start; i <= end; i++) {
-			int frame = frames.get(i);
+			int frame = frames[i];
 			float[] coords = keypoints.get(keypoint).get(frame);
 
 			// Add coordinates to sum if they exist
@@ -368,4 +382,194 @@ public class PoseDataProcessing {
 
 		return processedMap;
 	}
+
+	/**
+	 * Method to process pose data held in a columnar sequence. Runs the same
+	 * clean, smooth and normalize stages as the map based pipeline, directly on the
+	 * primitive arrays.
+	 *
+	 * @param sequence Sequence to be processed
+	 * @return Processed sequence
+	 */
+	public PoseSequence processPoseData(PoseSequence sequence) {
+		PoseSequence processed = cleanMissingKeypoints(sequence);
+
+		// Smooth the cleaned keypoints with defined window size
+		int windowSize = 5;
+
+		processed = smoothKeypoints(processed, windowSize);
+
+		return normalizeKeypoints(processed);
+	}
+
+	/**
+	 * Fill gaps of at most MAX_GAP_THRESHOLD frames by linear interpolation between
+	 * the captured frames around them.
+	 *
+	 * @param sequence Sequence with missing frames
+	 * @return New sequence with short gaps filled
+	 */
+	public PoseSequence cleanMissingKeypoints(PoseSequence sequence) {
+		PoseSequence cleaned = sequence.copy();
+
+		for (int joint = 0; joint < sequence.getJointCount(); joint++) {
+			int[] frames = sequence.getPresentFrames(joint);
+
+			for (int i = 0; i < frames.length - 1; i++) {
+				int startFrame = frames[i];
+				int endFrame = frames[i + 1];
+
+				// Skip long gaps that exceed the maximum gap threshold
+				if (endFrame - startFrame > MAX_GAP_THRESHOLD) {
+					continue;
+				}
+
+				for (int f = startFrame + 1; f < endFrame; f++) {
+					float t = (float) (f - startFrame) / (endFrame - startFrame);
+					float x = sequence.get(joint, startFrame, 0);
+					float y = sequence.get(joint, startFrame, 1);
+					float z = sequence.get(joint, startFrame, 2);
+					cleaned.set(joint, f, x + (sequence.get(joint, endFrame, 0) - x) * t,
+							y + (sequence.get(joint, endFrame, 1) - y) * t,
+							z + (sequence.get(joint, endFrame, 2) - z) * t);
+				}
+			}
+		}
+		return cleaned;
+	}
+
+	/**
+	 * Smooth a sequence using a simple moving average over the captured frames of
+	 * each joint.
+	 *
+	 * @param sequence   Sequence to smooth
+	 * @param windowSize Number of frames to consider for smoothing
+	 * @return New smoothed sequence
+	 */
+	public PoseSequence smoothKeypoints(PoseSequence sequence, int windowSize) {
+		PoseSequence smoothed = new PoseSequence(sequence.getJointNames().toArray(new String[0]),
+				sequence.getFirstFrame(), sequence.getFrameCount());
+		int halfWindow = windowSize / 2;
+
+		for (int joint = 0; joint < sequence.getJointCount(); joint++) {
+			int[] frames = sequence.getPresentFrames(joint);
+
+			for (int i = 0; i < frames.length; i++) {
+				int start = Math.max(0, i - halfWindow);
+				int end = Math.min(i + halfWindow, frames.length - 1);
+				float sumX = 0, sumY = 0, sumZ = 0;
+
+				for (int k = start; k <= end; k++) {
+					sumX += sequence.get(joint, frames[k], 0);
+					sumY += sequence.get(joint, frames[k], 1);
+					sumZ += sequence.get(joint, frames[k], 2);
+				}
+
+				int count = end - start + 1;
+				smoothed.set(joint, frames[i], sumX / count, sumY / count, sumZ / count);
+			}
+		}
+		return smoothed;
+	}
+
+	/**
+	 * Normalize a sequence by the per-frame torso length so people of different
+	 * body sizes are compared correctly.
+	 *
+	 * @param sequence Sequence to normalize
+	 * @return New normalized sequence
+	 */
+	public PoseSequence normalizeKeypoints(PoseSequence sequence) {
+		PoseSequence normalized = sequence.copy();
+		float[] torsoLengths = calculateTorsoLengths(sequence);
+
+		for (int joint = 0; joint < sequence.getJointCount(); joint++) {
+			for (int f = 0; f < sequence.getFrameCount(); f++) {
+				float torsoLength = torsoLengths[f];
+
+				// No scaling if no torso length found
+				if (sequence.isPresent(joint, f) && torsoLength > 0) {
+					normalized.set(joint, f, sequence.get(joint, f, 0) / torsoLength,
+							sequence.get(joint, f, 1) / torsoLength, sequence.get(joint, f, 2) / torsoLength);
+				}
+			}
+		}
+		return normalized;
+	}
+
+	/**
+	 * Normalize a single frame by its torso length, the per-frame stage of
+	 * normalizeKeypoints, e.g. for frames delivered by a KeypointStream while the
+	 * capture is running. Gap filling and smoothing need the neighbouring frames,
+	 * so live frames are normalized without them.
+	 *
+	 * @param frame Frame to normalize
+	 * @return New normalized frame, or the frame itself if it has no torso
+	 */
+	public PoseFrame normalizeFrame(PoseFrame frame) {
+		Map<String, float[]> joints = frame.getJoints();
+		float torsoLength = 0;
+
+		// Calculate torso length using fallback options
+		if (joints.containsKey("shoulder_left") && joints.containsKey("hip_left")) {
+			torsoLength = calculateDistance(joints.get("shoulder_left"), joints.get("hip_left"));
+		} else if (joints.containsKey("shoulder_right") && joints.containsKey("hip_right")) {
+			torsoLength = calculateDistance(joints.get("shoulder_right"), joints.get("hip_right"));
+		}
+
+		// No scaling if no torso length found
+		if (torsoLength <= 0) {
+			return frame;
+		}
+
+		Map<String, float[]> normalized = new LinkedHashMap<>();
+		for (Map.Entry<String, float[]> joint : joints.entrySet()) {
+			float[] coords = joint.getValue();
+			normalized.put(joint.getKey(),
+					new float[] { coords[0] / torsoLength, coords[1] / torsoLength, coords[2] / torsoLength });
+		}
+		return new PoseFrame(frame.getFrame(), normalized);
+	}
+
+	/**
+	 * Calculate torso length between shoulder and hip for every frame of a
+	 * sequence.
+	 *
+	 * @param sequence Sequence of keypoints
+	 * @return Torso length per relative frame, 0 where no torso keypoints exist
+	 */
+	private float[] calculateTorsoLengths(PoseSequence sequence) {
+		float[] lengths = new float[sequence.getFrameCount()];
+		int shoulderLeft = sequence.getJointIndex("shoulder_left");
+		int hipLeft = sequence.getJointIndex("hip_left");
+		int shoulderRight = sequence.getJointIndex("shoulder_right");
+		int hipRight = sequence.getJointIndex("hip_right");
+
+		for (int f = 0; f < lengths.length; f++) {
+			// Calculate torso length using fallback options
+			if (isPresent(sequence, shoulderLeft, f) && isPresent(sequence, hipLeft, f)) {
+				lengths[f] = jointDistance(sequence, shoulderLeft, hipLeft, f);
+			} else if (isPresent(sequence, shoulderRight, f) && isPresent(sequence, hipRight, f)) {
+				lengths[f] = jointDistance(sequence, shoulderRight, hipRight, f);
+			}
+		}
+		return lengths;
+	}
+
+	private boolean isPresent(PoseSequence sequence, int joint, int frame) {
+		return joint >= 0 && sequence.isPresent(joint, frame);
+	}
+
+	/**
+	 * Euclidean distance between two joints of a sequence in the same frame.
+	 */
+	private float jointDistance(PoseSequence sequence, int jointA, int jointB, int frame) {
+		float[] coords = sequence.getCoordinates();
+		int a = sequence.offset(jointA, frame);
+		int b = sequence.offset(jointB, frame);
+		float dx = coords[a] - coords[b];
+		float dy = coords[a + 1] - coords[b + 1];
+		float dz = coords[a + 2] - coords[b + 2];
+		return (float) Math.sqrt((double) dx * dx + (double) dy * dy + (double) dz * dz);
+	}
 }
@@ -3,10 +3,25 @@ package com.instructor.data;
 import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public class PoseDataReader {
+    // Smallest share of a mapped file worth a parsing task of its own
+    private static final int MIN_SPLIT_BYTES = 1 << 20;
 
     /**
      * Method to read keypoints data from a text file, takes a file path as an
@@ -18,55 +33,224 @@ public class PoseDataReader {
      *         of frame value and coordinates
      */
     public Map<String, Map<Integer, float[]>> readKeypointsFromFile(String filePath) {
-        // The outer Map holds keypoint names as keys and a Map of frame data as values
-        Map<String, Map<Integer, float[]>> keypointsMap = new HashMap<>();
+        // Parsed from the file bytes into columns, then converted to the map shape
+        Map<String, Map<Integer, float[]>> keypointsMap = readPoseSequence(filePath).toMap();
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            String currentKeypoint = null; // Track current keypoint being processed
-
-            // Read each line from the file
-            while ((line = reader.readLine()) != null) {
-                // Trim whitespace from the line
-                line = line.trim();
-
-                // If the line ends with a colon, it indicates a new keypoint
-                if (line.endsWith(":")) {
-                    // Extract keypoint name (removing colon at the end)
-                    currentKeypoint = line.substring(0, line.length() - 1).trim();
-
-                    // Initialize a new Map to store frame data for the keypoint
-                    keypointsMap.put(currentKeypoint, new HashMap<>());
-
-                } else if (currentKeypoint != null) {
-                    // Line should be in the format: Frame x: x=val, y=val, z=val
-                    String[] frameParts = line.split(":");
-
-                    if (frameParts.length > 1) {
-                        // Extract the frame number from the line (Frame 1)
-                        String frameInfo = frameParts[0].trim();
-                        int frameNumber = Integer.parseInt(frameInfo.split(" ")[1]);
-
-                        // Extract x, y, z coordinates
-                        String[] coordinates = frameParts[1].trim().split(",");
-                        float[] values = new float[3]; // Hold x, y, z values
-
-                        // Parse the x, y, z values and store them in the values array
-                        for (int i = 0; i < coordinates.length; i++) {
-                            String[] coord = coordinates[i].trim().split("=");
-                            values[i] = Float.parseFloat(coord[1].trim());
-                        }
-                        // Add the parsed frame data to the current keypoints' Map
-                        keypointsMap.get(currentKeypoint).put(frameNumber, values);
-                    }
-                }
+        // Return fully populated Map of keypoints and frame data
+        return keypointsMap;
+    }
+
+    /**
+     * Reads a keypoints text file straight into a columnar PoseSequence. The file
+     * is loaded in one read and parsed from its bytes, without building lines,
+     * Strings or the intermediate frame maps. A binary .pose file is mapped
+     * instead and copied without parsing.
+     *
+     * @param filePath Text or .pose file that contains keypoints data
+     * @return Sequence holding every joint block of the file
+     */
+    public PoseSequence readPoseSequence(String filePath) {
+        if (filePath.endsWith(PoseFile.EXTENSION)) {
+            return readPoseFile(filePath);
+        }
+        KeypointColumns columns = new KeypointColumns();
+
+        try {
+            byte[] contents = Files.readAllBytes(Paths.get(filePath));
+            KeypointParser.parse(contents, contents.length, columns);
+        } catch (Exception e) {
+            // Print stack trace if error occurs
+            e.printStackTrace();
+        }
+        return columns.toSequence();
+    }
+
+    /**
+     * Reads a keypoints text or .pose file like readPoseSequence(String), but
+     * reports a failure to the caller instead of printing it and returning what
+     * was read, e.g. for batch jobs that must not record results of a file they
+     * could not read.
+     *
+     * @param file Text or .pose file that contains keypoints data
+     * @return Sequence holding every joint block of the file
+     * @throws IOException If the file cannot be read or holds a malformed number
+     */
+    public PoseSequence readPoseSequence(Path file) throws IOException {
+        if (file.toString().endsWith(PoseFile.EXTENSION)) {
+            return PoseFile.open(file).toSequence();
+        }
+        KeypointColumns columns = new KeypointColumns();
+        byte[] contents = Files.readAllBytes(file);
+        try {
+            KeypointParser.parse(contents, contents.length, columns);
+        } catch (NumberFormatException e) {
+            throw new IOException("Malformed keypoints file: " + file, e);
+        }
+        return columns.toSequence();
+    }
+
+    /**
+     * Lists the keypoints text files of a library, e.g. motion_database,
+     * skipping hidden directories such as .idea.
+     *
+     * @param directory Library directory, searched recursively
+     * @return The .txt files in a stable (sorted) order
+     * @throws IOException If the directory cannot be listed
+     */
+    public static List<Path> listKeypointFiles(Path directory) throws IOException {
+        try (Stream<Path> walk = Files.walk(directory)) {
+            return walk.filter(Files::isRegularFile)
+                    .filter(path -> path.getFileName().toString().endsWith(".txt"))
+                    .filter(path -> !directory.relativize(path).toString().startsWith("."))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Reads a large keypoints file in parallel. The file is memory-mapped and cut
+     * into about one range per core at joint block boundaries; every task copies
+     * its range out of the mapping and parses it, and the ranges are joined in
+     * file order, so the sequence equals readPoseSequence(filePath). Files under
+     * a megabyte, or a null executor, fall back to readPoseSequence(filePath).
+     *
+     * @param filePath Text file that contains keypoints data, at most 2 GB
+     * @param executor Executor parsing the ranges, or null
+     * @return Sequence holding every joint block of the file
+     */
+    public PoseSequence readPoseSequence(String filePath, ExecutorService executor) {
+        if (filePath.endsWith(PoseFile.EXTENSION)) {
+            return readPoseFile(filePath);
+        }
+        KeypointColumns columns = new KeypointColumns();
+
+        try {
+            if (!parseInParallel(Paths.get(filePath), executor, columns)) {
+                return readPoseSequence(filePath);
             }
+        } catch (ExecutionException e) {
+            // Print stack trace of the range that failed
+            e.getCause().printStackTrace();
         } catch (Exception e) {
             // Print stack trace if error occurs
             e.printStackTrace();
         }
-        // Return fully populated Map of keypoints and frame data
-        return keypointsMap;
+        return columns.toSequence();
+    }
+
+    /**
+     * Reads a keypoints text or .pose file like readPoseSequence(filePath,
+     * executor), but reports a failure to the caller like readPoseSequence(file).
+     *
+     * @param file     Text or .pose file that contains keypoints data, at most 2 GB
+     * @param executor Executor parsing the ranges, or null
+     * @return Sequence holding every joint block of the file
+     * @throws IOException If the file cannot be read or holds a malformed number
+     */
+    public PoseSequence readPoseSequence(Path file, ExecutorService executor) throws IOException {
+        if (file.toString().endsWith(PoseFile.EXTENSION)) {
+            return PoseFile.open(file).toSequence();
+        }
+        KeypointColumns columns = new KeypointColumns();
+
+        try {
+            if (!parseInParallel(file, executor, columns)) {
+                return readPoseSequence(file);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading " + file, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof NumberFormatException) {
+                throw new IOException("Malformed keypoints file: " + file, cause);
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+        return columns.toSequence();
+    }
+
+    /**
+     * @param file Keypoints text file
+     * @return True if readPoseSequence(file, executor) parses the file in more
+     *         than one range on this machine, false if it reads it on the
+     *         calling thread
+     * @throws IOException If the file size cannot be read
+     */
+    public static boolean isReadInParallel(Path file) throws IOException {
+        return !file.toString().endsWith(PoseFile.EXTENSION) && splits(Files.size(file)) >= 2;
+    }
+
+    /**
+     * Parses the ranges of a text file on the executor into the columns, see
+     * readPoseSequence(filePath, executor).
+     *
+     * @return False, with nothing parsed, if there is no executor or the file is
+     *         too small to split
+     */
+    private static boolean parseInParallel(Path file, ExecutorService executor, KeypointColumns columns)
+            throws IOException, InterruptedException, ExecutionException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int splits = splits(size);
+            if (executor == null || splits < 2) {
+                return false;
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Keypoints file too large to map: " + file);
+            }
+            int length = (int) size;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+            // Range k starts at the first block header after k / splits of the file
+            int[] bounds = new int[splits + 1];
+            bounds[splits] = length;
+            for (int k = 1; k < splits; k++) {
+                int split = (int) ((long) length * k / splits);
+                bounds[k] = KeypointParser.nextBlock(buffer, Math.max(bounds[k - 1], split), length);
+            }
+
+            List<Future<KeypointColumns>> ranges = new ArrayList<>();
+            for (int k = 0; k < splits; k++) {
+                int from = bounds[k];
+                int to = bounds[k + 1];
+                ranges.add(executor.submit(() -> {
+                    // Absolute bulk get, the tasks share the buffer without touching its position
+                    byte[] contents = new byte[to - from];
+                    buffer.get(from, contents);
+                    KeypointColumns range = new KeypointColumns();
+                    KeypointParser.parse(contents, contents.length, range);
+                    return range;
+                }));
+            }
+            for (Future<KeypointColumns> range : ranges) {
+                columns.addAll(range.get());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return Number of ranges a file of the given size is parsed in
+     */
+    private static int splits(long size) {
+        return (int) Math.min(Runtime.getRuntime().availableProcessors(), size / MIN_SPLIT_BYTES);
+    }
+
+    private PoseSequence readPoseFile(String filePath) {
+        try {
+            return PoseFile.open(Paths.get(filePath)).toSequence();
+        } catch (IOException e) {
+            // Print stack trace if error occurs
+            e.printStackTrace();
+            return new PoseSequence(new String[0], 0, 0);
+        }
     }
 
     /**
@@ -0,0 +1,295 @@
+package com.instructor.data;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Binary .pose keypoint file, memory-mapped for reading.
+ *
+ * The file stores a PoseSequence in its own layout, little-endian:
+ *
+ * <pre>
+ * int    magic "POSE", int version
+ * float  fps (0 if unknown), int first frame, int frame count, int joint count
+ * joint count x (unsigned short length, UTF-8 name)
+ * zero padding to a multiple of 8 bytes
+ * float  coordinates, joint x frame x xyz (one contiguous block per joint)
+ * zero padding to a multiple of 8 bytes
+ * long   presence bitmap, bit joint * frameCount + frame
+ * </pre>
+ *
+ * Opening a file maps it and reads the header only. Joint trajectories are
+ * exposed as views of the mapping, and toSequence copies the two arrays in
+ * bulk, so nothing is parsed. The mapping is released when the PoseFile and
+ * its views are garbage collected.
+ */
+public class PoseFile {
+    public static final String EXTENSION = ".pose";
+
+    // "POSE" in ASCII, read as a little-endian int
+    private static final int MAGIC = 0x45534f50;
+    private static final int VERSION = 1;
+
+    private final Path path;
+    private final float fps;
+    private final int firstFrame;
+    private final int frameCount;
+    private final String[] joints;
+    private final FloatBuffer coordinates;
+    private final LongBuffer present;
+
+    private PoseFile(Path path, float fps, int firstFrame, int frameCount, String[] joints, FloatBuffer coordinates,
+            LongBuffer present) {
+        this.path = path;
+        this.fps = fps;
+        this.firstFrame = firstFrame;
+        this.frameCount = frameCount;
+        this.joints = joints;
+        this.coordinates = coordinates;
+        this.present = present;
+    }
+
+    /**
+     * Maps a .pose file and reads its header.
+     *
+     * @param file File written by write
+     * @return The opened file
+     * @throws IOException If the file cannot be read, is not a .pose file of a
+     *                     supported version, or is truncated
+     */
+    public static PoseFile open(Path file) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Pose file too large to map: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a pose file: " + file);
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported pose file version " + version + ": " + file);
+            }
+            float fps = buffer.getFloat();
+            int firstFrame = buffer.getInt();
+            int frameCount = buffer.getInt();
+            int jointCount = buffer.getInt();
+            // Every joint takes at least its two length bytes
+            if (frameCount < 0 || jointCount < 0 || jointCount > buffer.remaining() / Short.BYTES) {
+                throw new IOException("Corrupt pose file header: " + file);
+            }
+
+            String[] joints = new String[jointCount];
+            for (int j = 0; j < jointCount; j++) {
+                byte[] name = new byte[buffer.getShort() & 0xffff];
+                buffer.get(name);
+                joints[j] = new String(name, StandardCharsets.UTF_8);
+            }
+
+            long cells = (long) jointCount * frameCount;
+            long coordinatesOffset = align(buffer.position());
+            long presentOffset = align(coordinatesOffset + cells * 3 * Float.BYTES);
+            long end = presentOffset + ((cells + 63) >>> 6) * Long.BYTES;
+            if (end != buffer.limit()) {
+                throw new IOException("Truncated pose file: " + file);
+            }
+
+            FloatBuffer coordinates = slice(buffer, coordinatesOffset, coordinatesOffset + cells * 3 * Float.BYTES)
+                    .asFloatBuffer();
+            LongBuffer present = slice(buffer, presentOffset, end).asLongBuffer();
+            return new PoseFile(file, fps, firstFrame, frameCount, joints, coordinates, present);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated pose file: " + file, e);
+        }
+    }
+
+    /**
+     * Writes a sequence as a .pose file.
+     *
+     * @param file     Output file, replaced atomically
+     * @param sequence Sequence to store
+     * @param fps      Capture frame rate, 0 if unknown
+     * @throws IOException If the file cannot be written
+     */
+    public static void write(Path file, PoseSequence sequence, float fps) throws IOException {
+        byte[][] names = new byte[sequence.getJointCount()][];
+        int headerBytes = 6 * Integer.BYTES;
+        for (int j = 0; j < names.length; j++) {
+            names[j] = sequence.getJointName(j).getBytes(StandardCharsets.UTF_8);
+            if (names[j].length > 0xffff) {
+                throw new IOException("Joint name too long: " + sequence.getJointName(j));
+            }
+            headerBytes += Short.BYTES + names[j].length;
+        }
+
+        float[] values = sequence.getCoordinates();
+        long[] bits = sequence.getPresentBits();
+        long coordinatesOffset = align(headerBytes);
+        long presentOffset = align(coordinatesOffset + (long) values.length * Float.BYTES);
+        long end = presentOffset + (long) bits.length * Long.BYTES;
+        if (end > Integer.MAX_VALUE) {
+            throw new IOException("Sequence too large for a pose file: " + file);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) end).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putFloat(fps);
+        buffer.putInt(sequence.getFirstFrame());
+        buffer.putInt(sequence.getFrameCount());
+        buffer.putInt(names.length);
+        for (byte[] name : names) {
+            buffer.putShort((short) name.length);
+            buffer.put(name);
+        }
+        slice(buffer, coordinatesOffset, coordinatesOffset + (long) values.length * Float.BYTES).asFloatBuffer()
+                .put(values);
+        slice(buffer, presentOffset, end).asLongBuffer().put(bits);
+
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.rewind();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Converts a keypoints text file, e.g. a motion_database pro.txt, to a .pose
+     * file.
+     *
+     * @param text Keypoints text file
+     * @param pose Output file
+     * @param fps  Capture frame rate, 0 if unknown
+     * @throws IOException If the text file cannot be read or the output written
+     */
+    public static void convert(Path text, Path pose, float fps) throws IOException {
+        KeypointColumns columns = new KeypointColumns();
+        byte[] contents = Files.readAllBytes(text);
+        KeypointParser.parse(contents, contents.length, columns);
+        write(pose, columns.toSequence(), fps);
+    }
+
+    /**
+     * Writes a .pose file next to every keypoints text file of a library,
+     * skipping hidden directories such as .idea.
+     *
+     * @param directory Library directory, e.g. motion_database
+     * @param fps       Capture frame rate of the library, 0 if unknown
+     * @return The .pose files written
+     * @throws IOException If a file cannot be read or written
+     */
+    public static List<Path> convertLibrary(Path directory, float fps) throws IOException {
+        List<Path> written = new ArrayList<>();
+        for (Path text : PoseDataReader.listKeypointFiles(directory)) {
+            String name = text.getFileName().toString();
+            Path pose = text.resolveSibling(name.substring(0, name.length() - ".txt".length()) + EXTENSION);
+            convert(text, pose, fps);
+            written.add(pose);
+        }
+        return written;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return Capture frame rate, 0 if unknown
+     */
+    public float getFps() {
+        return fps;
+    }
+
+    public int getFirstFrame() {
+        return firstFrame;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getJointCount() {
+        return joints.length;
+    }
+
+    public String getJointName(int joint) {
+        return joints[joint];
+    }
+
+    /**
+     * @return Joint names in storage order
+     */
+    public List<String> getJointNames() {
+        return Collections.unmodifiableList(Arrays.asList(joints));
+    }
+
+    /**
+     * @param name Joint name (e.g. shoulder_left)
+     * @return Index of the joint, or -1 if the file has no such joint
+     */
+    public int getJointIndex(String name) {
+        return Arrays.asList(joints).indexOf(name);
+    }
+
+    /**
+     * Zero-copy view of one joint's trajectory: frameCount * 3 floats, xyz per
+     * frame, 0 where the frame is missing.
+     *
+     * @param joint Joint index
+     * @return Read-only view of the mapping
+     */
+    public FloatBuffer getJoint(int joint) {
+        int length = frameCount * 3;
+        return coordinates.slice(joint * length, length).asReadOnlyBuffer();
+    }
+
+    public boolean isPresent(int joint, int frame) {
+        int bit = joint * frameCount + frame;
+        return (present.get(bit >>> 6) & (1L << bit)) != 0;
+    }
+
+    /**
+     * Copies the file into a PoseSequence with one bulk copy per array.
+     *
+     * @return Sequence equal to the one written
+     */
+    public PoseSequence toSequence() {
+        float[] values = new float[coordinates.capacity()];
+        long[] bits = new long[present.capacity()];
+        coordinates.get(0, values);
+        present.get(0, bits);
+        return new PoseSequence(joints, firstFrame, frameCount, values, bits);
+    }
+
+    private static long align(long offset) {
+        return (offset + 7) & ~7L;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, long from, long to) {
+        return buffer.slice((int) from, (int) (to - from)).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -0,0 +1,34 @@
+package com.instructor.data;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Coordinates of the joints captured in one frame, as delivered by a
+ * KeypointStream.
+ */
+public class PoseFrame {
+    private final int frame;
+    private final Map<String, float[]> joints;
+
+    /**
+     * @param frame  Frame number
+     * @param joints Coordinates {x, y, z} by joint name
+     */
+    public PoseFrame(int frame, Map<String, float[]> joints) {
+        this.frame = frame;
+        this.joints = Collections.unmodifiableMap(joints);
+    }
+
+    public int getFrame() {
+        return frame;
+    }
+
+    /**
+     * @return Coordinates {x, y, z} by joint name, in capture order; joints not
+     *         detected in the frame are absent
+     */
+    public Map<String, float[]> getJoints() {
+        return joints;
+    }
+}
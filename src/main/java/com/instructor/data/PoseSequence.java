@@ -0,0 +1,301 @@
+package com.instructor.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dense columnar container for pose keypoints.
+ *
+ * All coordinates live in a single float[] laid out as joint x frame x xyz, so
+ * one joint's trajectory is a contiguous block of frameCount * 3 floats. Frames
+ * that were not captured for a joint are tracked in a bitmap instead of being
+ * left out of a map.
+ *
+ * Frame indices passed to the accessors are relative to {@link #getFirstFrame()},
+ * i.e. index 0 is the first captured frame of the recording.
+ */
+public class PoseSequence {
+    private final String[] joints;
+    private final Map<String, Integer> jointIndex;
+    private final int firstFrame;
+    private final int frameCount;
+    private final float[] coordinates;
+    private final long[] present;
+
+    /**
+     * Creates an empty sequence where every frame of every joint is missing.
+     *
+     * @param joints     Joint names, in the order they will be stored
+     * @param firstFrame Frame number of the first frame in the sequence
+     * @param frameCount Number of frames covered by the sequence
+     */
+    public PoseSequence(String[] joints, int firstFrame, int frameCount) {
+        if (frameCount < 0) {
+            throw new IllegalArgumentException("Frame count must not be negative: " + frameCount);
+        }
+        this.joints = joints.clone();
+        this.jointIndex = index(this.joints);
+        this.firstFrame = firstFrame;
+        this.frameCount = frameCount;
+        this.coordinates = new float[this.joints.length * frameCount * 3];
+        this.present = new long[(this.joints.length * frameCount + 63) >>> 6];
+    }
+
+    /**
+     * Wraps arrays already in the storage layout, e.g. loaded from a .pose file,
+     * without copying them.
+     *
+     * @param coordinates joint x frame x xyz coordinates
+     * @param present     Presence bitmap, bit joint * frameCount + frame
+     */
+    PoseSequence(String[] joints, int firstFrame, int frameCount, float[] coordinates, long[] present) {
+        if (frameCount < 0 || coordinates.length != joints.length * frameCount * 3
+                || present.length != (joints.length * frameCount + 63) >>> 6) {
+            throw new IllegalArgumentException("Arrays do not match " + joints.length + " joints x " + frameCount
+                    + " frames");
+        }
+        this.joints = joints.clone();
+        this.jointIndex = index(this.joints);
+        this.firstFrame = firstFrame;
+        this.frameCount = frameCount;
+        this.coordinates = coordinates;
+        this.present = present;
+    }
+
+    private static Map<String, Integer> index(String[] joints) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int j = 0; j < joints.length; j++) {
+            index.put(joints[j], j);
+        }
+        return index;
+    }
+
+    /**
+     * Builds a sequence from the legacy map shape.
+     *
+     * @param keypoints Map of body part to a map of frame number to coordinates
+     * @return Columnar copy of the keypoints
+     */
+    public static PoseSequence fromMap(Map<String, Map<Integer, float[]>> keypoints) {
+        String[] names = keypoints.keySet().toArray(new String[0]);
+        int minFrame = Integer.MAX_VALUE;
+        int maxFrame = Integer.MIN_VALUE;
+
+        for (Map<Integer, float[]> frames : keypoints.values()) {
+            for (int frame : frames.keySet()) {
+                minFrame = Math.min(minFrame, frame);
+                maxFrame = Math.max(maxFrame, frame);
+            }
+        }
+
+        if (minFrame > maxFrame) {
+            return new PoseSequence(names, 0, 0);
+        }
+
+        PoseSequence sequence = new PoseSequence(names, minFrame, maxFrame - minFrame + 1);
+        for (int j = 0; j < names.length; j++) {
+            for (Map.Entry<Integer, float[]> entry : keypoints.get(names[j]).entrySet()) {
+                float[] coords = entry.getValue();
+                if (coords != null) {
+                    sequence.set(j, entry.getKey() - minFrame, coords[0], coords[1], coords[2]);
+                }
+            }
+        }
+        return sequence;
+    }
+
+    /**
+     * Converts the sequence back to the legacy map shape. Missing frames are left
+     * out of the frame maps.
+     *
+     * @return Map of body part to a map of frame number to coordinates
+     */
+    public Map<String, Map<Integer, float[]>> toMap() {
+        Map<String, Map<Integer, float[]>> keypoints = new HashMap<>();
+
+        for (int j = 0; j < joints.length; j++) {
+            Map<Integer, float[]> frames = new HashMap<>();
+            for (int f = 0; f < frameCount; f++) {
+                if (isPresent(j, f)) {
+                    int offset = offset(j, f);
+                    frames.put(firstFrame + f, new float[] { coordinates[offset], coordinates[offset + 1],
+                            coordinates[offset + 2] });
+                }
+            }
+            keypoints.put(joints[j], frames);
+        }
+        return keypoints;
+    }
+
+    public int getJointCount() {
+        return joints.length;
+    }
+
+    public int getFrameCount() {
+        return frameCount;
+    }
+
+    public int getFirstFrame() {
+        return firstFrame;
+    }
+
+    public String getJointName(int joint) {
+        return joints[joint];
+    }
+
+    /**
+     * @return Joint names in storage order
+     */
+    public List<String> getJointNames() {
+        return Collections.unmodifiableList(Arrays.asList(joints));
+    }
+
+    /**
+     * @param name Joint name (e.g. shoulder_left)
+     * @return Index of the joint, or -1 if the sequence has no such joint
+     */
+    public int getJointIndex(String name) {
+        Integer index = jointIndex.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * @return Offset of the x coordinate of the given joint and frame in
+     *         {@link #getCoordinates()}
+     */
+    public int offset(int joint, int frame) {
+        return (joint * frameCount + frame) * 3;
+    }
+
+    public boolean isPresent(int joint, int frame) {
+        int bit = joint * frameCount + frame;
+        return (present[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    public float get(int joint, int frame, int axis) {
+        return coordinates[offset(joint, frame) + axis];
+    }
+
+    /**
+     * Stores coordinates for a joint and frame and marks the frame as present.
+     */
+    public void set(int joint, int frame, float x, float y, float z) {
+        int offset = offset(joint, frame);
+        coordinates[offset] = x;
+        coordinates[offset + 1] = y;
+        coordinates[offset + 2] = z;
+
+        int bit = joint * frameCount + frame;
+        present[bit >>> 6] |= 1L << bit;
+    }
+
+    /**
+     * Marks a joint and frame as missing.
+     */
+    public void clear(int joint, int frame) {
+        int offset = offset(joint, frame);
+        coordinates[offset] = 0;
+        coordinates[offset + 1] = 0;
+        coordinates[offset + 2] = 0;
+
+        int bit = joint * frameCount + frame;
+        present[bit >>> 6] &= ~(1L << bit);
+    }
+
+    /**
+     * Direct access to the backing array, laid out as joint x frame x xyz. Callers
+     * must not write to it; use {@link #set} instead so the bitmap stays in sync.
+     */
+    public float[] getCoordinates() {
+        return coordinates;
+    }
+
+    /**
+     * Direct access to the presence bitmap, bit joint * frameCount + frame.
+     * Callers must not write to it.
+     */
+    long[] getPresentBits() {
+        return present;
+    }
+
+    /**
+     * @return Number of captured frames for the joint
+     */
+    public int getPresentCount(int joint) {
+        int count = 0;
+        for (int f = 0; f < frameCount; f++) {
+            if (isPresent(joint, f)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return Relative indices of the captured frames for the joint, ascending
+     */
+    public int[] getPresentFrames(int joint) {
+        int[] frames = new int[getPresentCount(joint)];
+        int k = 0;
+        for (int f = 0; f < frameCount; f++) {
+            if (isPresent(joint, f)) {
+                frames[k++] = f;
+            }
+        }
+        return frames;
+    }
+
+    /**
+     * Packs the captured frames of a joint into a contiguous xyz array, skipping
+     * missing frames. This is the layout the DTW kernels operate on.
+     *
+     * @param joint Joint index
+     * @return Array of length presentCount * 3
+     */
+    public float[] packJoint(int joint) {
+        int[] frames = getPresentFrames(joint);
+        float[] packed = new float[frames.length * 3];
+        for (int k = 0; k < frames.length; k++) {
+            System.arraycopy(coordinates, offset(joint, frames[k]), packed, k * 3, 3);
+        }
+        return packed;
+    }
+
+    /**
+     * @return Deep copy of this sequence
+     */
+    public PoseSequence copy() {
+        PoseSequence copy = new PoseSequence(joints, firstFrame, frameCount);
+        System.arraycopy(coordinates, 0, copy.coordinates, 0, coordinates.length);
+        System.arraycopy(present, 0, copy.present, 0, present.length);
+        return copy;
+    }
+
+    /**
+     * @return True if both sequences have the same joints, frame range,
+     *         presence bitmap and coordinates, compared bit for bit
+     */
+    public boolean contentEquals(PoseSequence other) {
+        return firstFrame == other.firstFrame && frameCount == other.frameCount
+                && Arrays.equals(joints, other.joints) && Arrays.equals(present, other.present)
+                && Arrays.equals(coordinates, other.coordinates);
+    }
+
+    /**
+     * @return Joint names that are present in both sequences, in this sequence's
+     *         storage order
+     */
+    public List<String> sharedJoints(PoseSequence other) {
+        List<String> shared = new ArrayList<>();
+        for (String joint : joints) {
+            if (other.getJointIndex(joint) >= 0) {
+                shared.add(joint);
+            }
+        }
+        return shared;
+    }
+}
@@ -40,8 +40,8 @@ public class JointScoring {
     // Function to compare user and pro frames, calculate DTW, and provide feedback
     public static String compareFramesAndProvideFeedback(String jointName, float[] userFrameData,
             float[] proFrameData) {
-        // Calculate DTW distance (simulated for this example)
-        float dtwDistance = DynamicTimeWarping.dtw(Map.of(0, userFrameData), Map.of(0, proFrameData));
+        // Calculate DTW distance on the packed coordinates (single frame each)
+        float dtwDistance = DynamicTimeWarping.dtw(userFrameData, proFrameData);
 
         // If DTW distance is within the threshold, provide feedback
         if (dtwDistance <= DTW_THRESHOLD) {
@@ -4,14 +4,31 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import com.instructor.algorithms.AlignmentResult;
+import com.instructor.algorithms.DtwCache;
+import com.instructor.algorithms.DtwEngine;
 import com.instructor.algorithms.DynamicTimeWarping;
+import com.instructor.algorithms.ExactDtw;
+import com.instructor.algorithms.WarpingWindow;
 
 public class PoseScoring {
 	private PoseFeedback feedback = new PoseFeedback();
-	private int score = 0;
 	private int overallScore = 0;
 
+	// DTW implementation used for every alignment, exact full DTW by default
+	private DtwEngine dtwEngine = new ExactDtw();
+
+	// Executor aligning the body parts in parallel, null to align them serially
+	private ExecutorService executor = null;
+
+	// Cache of alignments shared across calls, null to always recompute
+	private DtwCache cache = null;
+
 	// Threshold for considering a pose as "needs improvement" for detailed AI
 	// feedback
 	private static final int THRESHOLD_SCORE = 80;
@@ -35,6 +52,70 @@ public class PoseScoring {
 		return (int) Math.max(0, (1 - normalizedSimilarity) * 100);
 	}
 
+	/**
+	 * Set the warping window used by the alignments of this scorer. A band trades
+	 * exactness for roughly linear alignment cost on long routines.
+	 * 
+	 * @param warpingWindow Global path constraint, WarpingWindow.NONE for full DTW
+	 */
+	public void setWarpingWindow(WarpingWindow warpingWindow) {
+		this.dtwEngine = new ExactDtw(warpingWindow);
+	}
+
+	/**
+	 * Set the DTW implementation used by the alignments of this scorer, e.g. a
+	 * FastDtw for interactive feedback on long recordings.
+	 * 
+	 * @param dtwEngine DTW implementation
+	 */
+	public void setDtwEngine(DtwEngine dtwEngine) {
+		this.dtwEngine = dtwEngine;
+	}
+
+	public DtwEngine getDtwEngine() {
+		return dtwEngine;
+	}
+
+	/**
+	 * Set the executor used to align the body parts of calculatePoseScore in
+	 * parallel. Results are reported in the same order and are identical to the
+	 * serial run.
+	 * 
+	 * @param executor Executor, e.g. ForkJoinPool.commonPool(), or null to align
+	 *                 the body parts on the calling thread
+	 */
+	public void setExecutor(ExecutorService executor) {
+		this.executor = executor;
+	}
+
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Set the cache the alignments of this scorer are looked up in, so scoring
+	 * the same recordings again or switching body parts does not realign them.
+	 * 
+	 * @param cache Result cache, or null to align on every call
+	 */
+	public void setCache(DtwCache cache) {
+		this.cache = cache;
+	}
+
+	public DtwCache getCache() {
+		return cache;
+	}
+
+	/**
+	 * Align one body part, through the cache if one is set
+	 */
+	private AlignmentResult align(Map<Integer, float[]> userPartData, Map<Integer, float[]> proPartData) {
+		if (cache != null) {
+			return cache.align(userPartData, proPartData, dtwEngine);
+		}
+		return DynamicTimeWarping.align(userPartData, proPartData, dtwEngine);
+	}
+
 	/**
 	 * Score user pose against professional pose and provide feedback
 	 * 
@@ -47,6 +128,10 @@ public class PoseScoring {
 		Map<String, List<Integer>> incorrectFrames = new HashMap<>();
 		Map<String, List<Integer>> lowScoreFrames = new HashMap<>();
 
+		// Align every body part first, the alignments are independent
+		List<String> bodyParts = new ArrayList<>();
+		List<Callable<PartScore>> tasks = new ArrayList<>();
+
 		for (String bodyPart : userKeypoints.keySet()) {
 			Map<Integer, float[]> userPartData = userKeypoints.get(bodyPart);
 			Map<Integer, float[]> proPartData = proKeypoints.get(bodyPart);
@@ -56,57 +141,25 @@ public class PoseScoring {
 				continue;
 			}
 
-			// Calculate DTW and obtain the alignment path
-			List<int[]> alignmentPath = DynamicTimeWarping.dtwWithAlignmentPath(userPartData, proPartData);
-
-			// Track overall score based on DTW distance
-			float totalDtwDistance = 0;
-			float maxDistance = 1.5f; // Used to be 4.0f
-
-			for (int[] path : alignmentPath) {
-				int userFrame = path[0];
-				int proFrame = path[1];
-
-				// Check for null values before creating the map
-				float[] userFrameData = userPartData.get(userFrame);
-				float[] proFrameData = proPartData.get(proFrame);
-
-				// Skip this frame if either user or pro frame data is null
-				if (userFrameData == null || proFrameData == null) {
-					continue;
-				}
-
-				// Calculate the DTW distance for this pair of frames
-				float frameDtwDistance = DynamicTimeWarping.dtw(
-						Map.of(0, userPartData.get(userFrame)),
-						Map.of(0, proPartData.get(proFrame)));
-
-				totalDtwDistance += frameDtwDistance;
-				score = calculateScore(frameDtwDistance, maxDistance);
+			bodyParts.add(bodyPart);
+			tasks.add(() -> scorePart(userPartData, proPartData));
+		}
 
-				// Store low score frames
-				if (score < THRESHOLD_SCORE) {
+		List<PartScore> partScores = runAll(tasks);
+		float maxDistance = 1.5f; // Used to be 4.0f
 
-					// Track frames with poor alignment
-					if (!incorrectFrames.containsKey(bodyPart)) {
-						incorrectFrames.put(bodyPart, new ArrayList<>());
-					}
-					incorrectFrames.get(bodyPart).add(userFrame); // Add the frame number
-
-					// Store the low score for this frame
-					if (!lowScoreFrames.containsKey(bodyPart)) {
-						lowScoreFrames.put(bodyPart, new ArrayList<>());
-					}
-					lowScoreFrames.get(bodyPart).add(score); // Add the low score
-				}
+		for (int k = 0; k < bodyParts.size(); k++) {
+			String bodyPart = bodyParts.get(k);
+			PartScore partScore = partScores.get(k);
 
+			// Store low score frames
+			if (!partScore.lowScores.isEmpty()) {
+				incorrectFrames.put(bodyPart, partScore.incorrectFrames);
+				lowScoreFrames.put(bodyPart, partScore.lowScores);
 			}
 
-			// Calculate average DTW distance
-			float averageDtwDistance = totalDtwDistance / alignmentPath.size();
-
 			// Calculate overall score
-			overallScore = calculateScore(averageDtwDistance, maxDistance);
+			overallScore = calculateScore(partScore.averageDtwDistance, maxDistance);
 
 			if (isPartNeeded(bodyPart)) {
 				System.out.println("=================================================");
@@ -138,6 +191,74 @@ public class PoseScoring {
 		}
 	}
 
+	/**
+	 * Align one body part and score every aligned pair of frames
+	 * 
+	 * @param userPartData User frames of the body part
+	 * @param proPartData  Professional frames of the body part
+	 * @return Average distance and the frames scoring below THRESHOLD_SCORE
+	 */
+	private PartScore scorePart(Map<Integer, float[]> userPartData, Map<Integer, float[]> proPartData) {
+		// Align once and reuse the distance of every aligned pair of frames
+		AlignmentResult alignment = align(userPartData, proPartData);
+
+		// Track overall score based on DTW distance
+		float totalDtwDistance = 0;
+		float maxDistance = 1.5f; // Used to be 4.0f
+		PartScore partScore = new PartScore();
+
+		for (int k = 0; k < alignment.size(); k++) {
+			float frameDtwDistance = alignment.getLocalCost(k);
+
+			totalDtwDistance += frameDtwDistance;
+			int score = calculateScore(frameDtwDistance, maxDistance);
+
+			// Track frames with poor alignment and their scores
+			if (score < THRESHOLD_SCORE) {
+				partScore.incorrectFrames.add(alignment.getUserFrame(k));
+				partScore.lowScores.add(score);
+			}
+		}
+
+		// Calculate average DTW distance
+		partScore.averageDtwDistance = totalDtwDistance / alignment.size();
+		return partScore;
+	}
+
+	/**
+	 * Run the tasks on the executor, or on the calling thread if there is none
+	 * 
+	 * @param tasks Tasks to run
+	 * @return Results in task order
+	 */
+	private <T> List<T> runAll(List<Callable<T>> tasks) {
+		List<T> results = new ArrayList<>();
+		try {
+			if (executor == null) {
+				for (Callable<T> task : tasks) {
+					results.add(task.call());
+				}
+			} else {
+				for (Future<T> future : executor.invokeAll(tasks)) {
+					results.add(future.get());
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while scoring", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		return results;
+	}
+
 	/**
 	 * Method to check for only body parts needed
 	 * 
@@ -193,27 +314,20 @@ public class PoseScoring {
 				continue;
 			}
 
-			// Calculate alignment path using DTW
-			List<int[]> alignmentPath = DynamicTimeWarping.dtwWithAlignmentPath(userPartData, proPartData);
-			alignmentFrames.put(bodyPart, alignmentPath);
+			// Calculate alignment path and per-frame distances using DTW
+			AlignmentResult alignment = align(userPartData, proPartData);
+			alignmentFrames.put(bodyPart, alignment.getPath());
 
 			// Iterate over the aligned frames to generate the comparison
-			for (int[] path : alignmentPath) {
-				int userFrame = path[0];
-				int proFrame = path[1];
+			for (int k = 0; k < alignment.size(); k++) {
+				int userFrame = alignment.getUserFrame(k);
+				int proFrame = alignment.getProFrame(k);
 
 				float[] userFrameData = userPartData.get(userFrame);
 				float[] proFrameData = proPartData.get(proFrame);
 
-				if (userFrameData == null || proFrameData == null) {
-					continue;
-				}
-
-				// Calculate the DTW distance and score for the current frame
-				float frameDtwDistance = DynamicTimeWarping.dtw(
-						Map.of(0, userPartData.get(userFrame)),
-						Map.of(0, proPartData.get(proFrame)));
-				int score = calculateScore(frameDtwDistance, 1.5f); // Used to be 4.0f, which was too forgiving
+				// Score the current frame from its distance along the path
+				int score = calculateScore(alignment.getLocalCost(k), 1.5f); // Used to be 4.0f, which was too forgiving
 
 				// Only append to the prompt if the score is below THRESHOLD_SCORE
 				if (score < THRESHOLD_SCORE) {
@@ -233,4 +347,13 @@ public class PoseScoring {
 		}
 		return prompt.toString();
 	}
+
+	/**
+	 * Result of scoring one body part
+	 */
+	private static class PartScore {
+		float averageDtwDistance;
+		List<Integer> incorrectFrames = new ArrayList<>();
+		List<Integer> lowScores = new ArrayList<>();
+	}
 }
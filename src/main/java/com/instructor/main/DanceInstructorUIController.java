@@ -5,9 +5,14 @@ import java.io.File;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
-import com.instructor.algorithms.DynamicTimeWarping;
+import com.instructor.algorithms.DtwCache;
+import com.instructor.algorithms.ExactDtw;
+import com.instructor.algorithms.FastDtw;
+import com.instructor.algorithms.ReferenceProfile;
 import com.instructor.controller.ApplicationHandler;
+import com.instructor.data.PoseSequence;
 import com.instructor.evaluation.PoseFeedback;
 import com.instructor.evaluation.PoseScoring;
 
@@ -40,12 +45,26 @@ public class DanceInstructorUIController {
 
 	public static Map<String, Map<Integer, float[]>> userKeypointsMap = new HashMap<>();
 	public static Map<String, Map<Integer, float[]>> proKeypointsMap = new HashMap<>();
+	public static PoseSequence userSequence = new PoseSequence(new String[0], 0, 0);
+	public static PoseSequence proSequence = new PoseSequence(new String[0], 0, 0);
+	// proSequence compiled once when it is loaded, scored against every user take
+	public static ReferenceProfile proProfile = ReferenceProfile.compile("pro", proSequence);
 	private PoseFeedback poseFeedback = new PoseFeedback();
 	private PoseScoring poseScoring = new PoseScoring();
+
+	// Scores and alignments of recordings already compared, reused when the user
+	// picks another body part or the same one again
+	private static final int DTW_CACHE_CAPACITY = 64;
+	private final DtwCache dtwCache = new DtwCache(DTW_CACHE_CAPACITY);
 	public static boolean isUserInput = false;
 	public static boolean isProInput = false;
 	private boolean isPartChosen = false;
 
+	// Above this user x pro frame product exact DTW is too slow for interactive
+	// feedback and the approximate FastDTW engine is used instead
+	private static final long INTERACTIVE_FRAME_PRODUCT = 1L << 20;
+	private static final int FAST_DTW_RADIUS = 10;
+
 	public DanceInstructorUIController(Stage primaryStage, Button startButton, Button inputButton, Button doneButton,
 			Button userButton, Button profButton, Button backButton) {
 		this.startButton = startButton;
@@ -56,6 +75,7 @@ public class DanceInstructorUIController {
 		this.profButton = profButton;
 		this.backButton = backButton;
 
+		poseScoring.setCache(dtwCache);
 		setupEventHandlers();
 	}
 
@@ -190,8 +210,18 @@ public class DanceInstructorUIController {
 
 		// Run processing in a separate thread
 		new Thread(() -> {
+			// Pick the DTW engine based on the recording lengths
+			if ((long) userSequence.getFrameCount() * proSequence.getFrameCount() > INTERACTIVE_FRAME_PRODUCT) {
+				poseScoring.setDtwEngine(new FastDtw(FAST_DTW_RADIUS));
+			} else {
+				poseScoring.setDtwEngine(new ExactDtw());
+			}
+
 			// Calculate similarity score
-			float similarityScore = DynamicTimeWarping.totalDtw(userKeypointsMap, proKeypointsMap);
+			// Joints are independent, score them on all cores; a pair scored before
+			// with the same engine is answered from the cache
+			float similarityScore = dtwCache.totalDtw(userSequence, proProfile, poseScoring.getDtwEngine(),
+					ForkJoinPool.commonPool());
 			float maxSimilarity = 1.5f; // Was 4.0f, but generated artificially high scores
 			int finalScore = poseScoring.calculateScore(similarityScore, maxSimilarity);
 
@@ -1,7 +1,11 @@
 package com.instructor.main;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Scanner;
 import java.util.Set;
@@ -9,8 +13,11 @@ import java.util.Set;
 import com.instructor.algorithms.DynamicTimeWarping;
 import com.instructor.controller.ApplicationHandler;
 import com.instructor.controller.FileCleanup;
+import com.instructor.controller.PairwiseDistanceJob;
 import com.instructor.data.PoseDataProcessing;
 import com.instructor.data.PoseDataReader;
+import com.instructor.data.PoseFile;
+import com.instructor.data.PoseSequence;
 import com.instructor.evaluation.PoseFeedback;
 import com.instructor.evaluation.PoseScoring;
 
@@ -47,6 +54,8 @@ public class Main {
             System.out.println("1: Record video.");
             System.out.println("2: Upload video.");
             System.out.println("3: User history.");
+            System.out.println("5: Library distance matrix.");
+            System.out.println("6: Convert library to .pose files.");
             System.out.println("0: Test.");
             System.out.println("4: Exit."); // Added exit option
 
@@ -108,19 +117,40 @@ public class Main {
                     }
                     break;
 
+                case 5: // All-pairs distances of the motion database
+                    PairwiseDistanceJob job = new PairwiseDistanceJob(Paths.get("./motion_database"),
+                            Paths.get("./library_distances.bin"));
+                    try {
+                        float[][] distances = job.run();
+                        System.out.println("Wrote " + distances.length + " x " + distances.length
+                                + " distance matrix to ./library_distances.bin");
+                    } catch (IOException e) {
+                        System.out.println("Distance matrix job failed: " + e.getMessage());
+                    }
+                    break;
+
+                case 6: // Binary copies of the motion database
+                    try {
+                        List<Path> converted = PoseFile.convertLibrary(Paths.get("./motion_database"), 0);
+                        System.out.println("Converted " + converted.size() + " keypoint files to .pose");
+                    } catch (IOException e) {
+                        System.out.println("Conversion failed: " + e.getMessage());
+                    }
+                    break;
+
                 case 0: // Test
                     // Load keypoints from files
-                    userKeypointsMap = poseDataReader
-                            .readKeypointsFromFile("./motion_database/ballet_spin/beginner.txt");
-                    proKeypointsMap = poseDataReader
-                            .readKeypointsFromFile("./motion_database/ballet_spin/pro.txt");
+                    PoseSequence userSequence = poseDataProcessing.processPoseData(poseDataReader
+                            .readPoseSequence("./motion_database/ballet_spin/beginner.txt"));
+                    PoseSequence proSequence = poseDataProcessing.processPoseData(poseDataReader
+                            .readPoseSequence("./motion_database/ballet_spin/pro.txt"));
 
-                    userKeypointsMap = poseDataProcessing.processPoseData(userKeypointsMap);
-                    proKeypointsMap = poseDataProcessing.processPoseData(proKeypointsMap);
+                    userKeypointsMap = userSequence.toMap();
+                    proKeypointsMap = proSequence.toMap();
 
                     // Calculate similarity score between user and pro based on total distance
                     // difference
-                    float similarityScore = DynamicTimeWarping.totalDtw(userKeypointsMap, proKeypointsMap);
+                    float similarityScore = DynamicTimeWarping.totalDtw(userSequence, proSequence);
 
                     // Assume max similarity and calculate total score
                     float maxSimilarity = 4.0f; // Replace with actual value
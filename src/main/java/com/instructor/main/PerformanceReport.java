@@ -0,0 +1,669 @@
+package com.instructor.main;
+
+import com.instructor.algorithms.BatchComparison;
+import com.instructor.algorithms.DtwEngine;
+import com.instructor.algorithms.DynamicTimeWarping;
+import com.instructor.algorithms.ExactDtw;
+import com.instructor.algorithms.FastDtw;
+import com.instructor.algorithms.MergeSort;
+import com.instructor.algorithms.MultivariateDtw;
+import com.instructor.algorithms.OnlineTimeWarping;
+import com.instructor.algorithms.ReferenceProfile;
+import com.instructor.algorithms.ReferenceScore;
+import com.instructor.algorithms.ReferenceSearch;
+import com.instructor.algorithms.SearchResult;
+import com.instructor.algorithms.SubsequenceMatch;
+import com.instructor.algorithms.WarpingWindow;
+import com.instructor.data.PoseDataProcessing;
+import com.instructor.data.PoseDataReader;
+import com.instructor.data.PoseSequence;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line report comparing the speed and accuracy of the scoring
+ * algorithms on the motion_database samples. Run from the project root.
+ */
+public class PerformanceReport {
+    private static final String DATABASE = "./motion_database/";
+
+    // Pairs of {user file, pro file} compared by every report
+    private static final String[][] SAMPLE_PAIRS = {
+            { "ballet_spin/beginner.txt", "ballet_spin/pro.txt" },
+            { "hiphop_moves/pro.txt", "jackhiphop/pro.txt" },
+            { "ballet_spin/pro.txt", "hiphop_moves/pro.txt" },
+    };
+
+    private static final PoseDataReader reader = new PoseDataReader();
+    private static final PoseDataProcessing processing = new PoseDataProcessing();
+
+    // Timed runs per measurement, the fastest one is reported
+    private static final int RUNS = 3;
+
+    // Number of times a sample is looped to emulate a several-minute routine
+    private static final int LONG_ROUTINE_LOOPS = 12;
+
+    // Copies of a sample in the file read by printReadReport, about 12 MB
+    private static final int READ_REPORT_COPIES = 32;
+
+    public static void main(String[] args) {
+        printBandDrift();
+        printFastDtwReport();
+        printMultivariateReport();
+        printParallelReport();
+        printSubsequenceReport();
+        printOnlineReport();
+        printEarlyAbandonReport();
+        printReferenceSearchReport();
+        printBatchReport();
+        printSortReport();
+        printReadReport();
+    }
+
+    /**
+     * Prints the score drift and time of band-constrained DTW against full DTW.
+     */
+    public static void printBandDrift() {
+        WarpingWindow[] windows = {
+                WarpingWindow.sakoeChibaFraction(0.05f),
+                WarpingWindow.sakoeChibaFraction(0.1f),
+                WarpingWindow.sakoeChibaFraction(0.2f),
+                WarpingWindow.sakoeChiba(30),
+                WarpingWindow.itakura(2f),
+                WarpingWindow.itakura(3f),
+        };
+
+        System.out.println("=== Band-constrained DTW vs. full DTW ===");
+        for (String[] pair : SAMPLE_PAIRS) {
+            PoseSequence user = loadSample(pair[0]);
+            PoseSequence pro = loadSample(pair[1]);
+
+            double[] exact = timeTotalDtw(user, pro, new ExactDtw());
+
+            System.out.println(pair[0] + " vs " + pair[1]);
+            System.out.printf("  %-24s score=%.5f  time=%8.2f ms%n", "Full", exact[0], exact[1]);
+
+            for (WarpingWindow window : windows) {
+                double[] banded = timeTotalDtw(user, pro, new ExactDtw(window));
+
+                System.out.printf("  %-24s score=%.5f  time=%8.2f ms  drift=%+.2f%%%n", window, banded[0], banded[1],
+                        drift(banded[0], exact[0]));
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Prints the error and speed of FastDTW at several radii against exact DTW.
+     */
+    public static void printFastDtwReport() {
+        int[] radii = { 1, 5, 10, 20, 40 };
+
+        System.out.println("=== FastDTW vs. exact DTW ===");
+        for (int p = 0; p <= SAMPLE_PAIRS.length; p++) {
+            // The last pair loops the hiphop samples into multi-minute routines
+            String[] pair = p < SAMPLE_PAIRS.length ? SAMPLE_PAIRS[p] : SAMPLE_PAIRS[1];
+            int loops = p < SAMPLE_PAIRS.length ? 1 : LONG_ROUTINE_LOOPS;
+            PoseSequence user = repeat(loadSample(pair[0]), loops);
+            PoseSequence pro = repeat(loadSample(pair[1]), loops);
+
+            double[] exact = timeTotalDtw(user, pro, new ExactDtw());
+
+            System.out.println(pair[0] + " vs " + pair[1] + (loops > 1 ? " (looped " + loops + "x)" : ""));
+            System.out.printf("  %-24s score=%.5f  time=%8.2f ms%n", "Exact", exact[0], exact[1]);
+
+            for (int radius : radii) {
+                DtwEngine engine = new FastDtw(radius);
+                double[] approximate = timeTotalDtw(user, pro, engine);
+
+                System.out.printf("  %-24s score=%.5f  time=%8.2f ms  error=%+.2f%%  speedup=%.1fx%n", engine,
+                        approximate[0], approximate[1], drift(approximate[0], exact[0]), exact[1] / approximate[1]);
+            }
+            System.out.println();
+        }
+    }
+
+    /**
+     * Prints the score and speed of multivariate DTW (one shared path) against
+     * the per-joint average.
+     */
+    public static void printMultivariateReport() {
+        MultivariateDtw multivariate = new MultivariateDtw();
+
+        System.out.println("=== Multivariate DTW vs. per-joint DTW ===");
+        for (int p = 0; p <= SAMPLE_PAIRS.length; p++) {
+            // The looped pair is above WAVEFRONT_THRESHOLD and runs in parallel tiles
+            String[] pair = p < SAMPLE_PAIRS.length ? SAMPLE_PAIRS[p] : SAMPLE_PAIRS[1];
+            int loops = p < SAMPLE_PAIRS.length ? 1 : LONG_ROUTINE_LOOPS;
+            PoseSequence user = repeat(loadSample(pair[0]), loops);
+            PoseSequence pro = repeat(loadSample(pair[1]), loops);
+
+            double[] perJoint = timeTotalDtw(user, pro, new ExactDtw());
+
+            float score = 0;
+            double best = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                score = multivariate.dtw(user, pro);
+                best = Math.min(best, elapsedMs(start));
+            }
+
+            System.out.println(pair[0] + " vs " + pair[1] + (loops > 1 ? " (looped " + loops + "x)" : ""));
+            System.out.printf("  %-24s score=%.5f  time=%8.2f ms%n", "Per joint", perJoint[0], perJoint[1]);
+            System.out.printf("  %-24s score=%.5f  time=%8.2f ms  speedup=%.1fx%n", "Multivariate", score, best,
+                    perJoint[1] / best);
+            System.out.println();
+        }
+    }
+
+    /**
+     * Prints the speed of scoring the joints on the common fork-join pool against
+     * the serial loop, and checks that both give the same score.
+     */
+    public static void printParallelReport() {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        System.out.println("=== Parallel vs. serial per-joint DTW (" + pool.getParallelism() + " workers) ===");
+        for (int p = 0; p <= SAMPLE_PAIRS.length; p++) {
+            String[] pair = p < SAMPLE_PAIRS.length ? SAMPLE_PAIRS[p] : SAMPLE_PAIRS[1];
+            int loops = p < SAMPLE_PAIRS.length ? 1 : LONG_ROUTINE_LOOPS;
+            PoseSequence user = repeat(loadSample(pair[0]), loops);
+            PoseSequence pro = repeat(loadSample(pair[1]), loops);
+            DtwEngine engine = new ExactDtw();
+
+            double[] serial = timeTotalDtw(user, pro, engine);
+
+            float score = 0;
+            double best = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                score = DynamicTimeWarping.totalDtw(user, pro, engine, pool);
+                best = Math.min(best, elapsedMs(start));
+            }
+
+            System.out.println(pair[0] + " vs " + pair[1] + (loops > 1 ? " (looped " + loops + "x)" : ""));
+            System.out.printf("  %-24s score=%.5f  time=%8.2f ms%n", "Serial", serial[0], serial[1]);
+            System.out.printf("  %-24s score=%.5f  time=%8.2f ms  speedup=%.1fx  identical=%b%n", "Parallel", score,
+                    best, serial[1] / best, (float) serial[0] == score);
+            System.out.println();
+        }
+    }
+
+    /**
+     * Prints where subsequence DTW places a ballet take inside a routine made of
+     * hiphop, ballet and hiphop again, and how long the search takes.
+     */
+    public static void printSubsequenceReport() {
+        PoseSequence hiphop = loadSample("hiphop_moves/pro.txt");
+        PoseSequence balletPro = loadSample("ballet_spin/pro.txt");
+        PoseSequence take = loadSample("ballet_spin/beginner.txt");
+        PoseSequence routine = concat(hiphop, balletPro, hiphop);
+        MultivariateDtw multivariate = new MultivariateDtw();
+
+        SubsequenceMatch match = null;
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            match = multivariate.locate(take, routine);
+            best = Math.min(best, elapsedMs(start));
+        }
+
+        int balletStart = routine.getFirstFrame() + hiphop.getFrameCount();
+        System.out.println("=== Subsequence DTW ===");
+        System.out.println("ballet_spin/beginner.txt inside hiphop + ballet_spin/pro.txt + hiphop ("
+                + routine.getFrameCount() + " frames)");
+        System.out.printf("  %-24s frames %d..%d%n", "Ballet segment", balletStart,
+                balletStart + balletPro.getFrameCount() - 1);
+        System.out.printf("  %-24s frames %d..%d  score=%.5f  time=%8.2f ms%n", "Match", match.getStartFrame(),
+                match.getEndFrame(), match.getScore(), best);
+        System.out.println();
+    }
+
+    /**
+     * Streams each user take into online time warping frame by frame and prints
+     * the per-frame latency and the final running score against offline
+     * multivariate DTW.
+     */
+    public static void printOnlineReport() {
+        int windowSize = 120; // 6 seconds at 20 fps
+
+        System.out.println("=== Online time warping (window " + windowSize + " frames) ===");
+        for (int p = 0; p <= SAMPLE_PAIRS.length; p++) {
+            String[] pair = p < SAMPLE_PAIRS.length ? SAMPLE_PAIRS[p] : SAMPLE_PAIRS[1];
+            int loops = p < SAMPLE_PAIRS.length ? 1 : LONG_ROUTINE_LOOPS;
+            PoseSequence user = repeat(loadSample(pair[0]), loops);
+            PoseSequence pro = repeat(loadSample(pair[1]), loops);
+
+            OnlineTimeWarping online = new OnlineTimeWarping(pro, windowSize);
+            long total = 0;
+            long worst = 0;
+            for (int f = 0; f < user.getFrameCount(); f++) {
+                Map<String, float[]> frame = frame(user, f);
+                long start = System.nanoTime();
+                online.push(frame);
+                long elapsed = System.nanoTime() - start;
+                total += elapsed;
+                worst = Math.max(worst, elapsed);
+            }
+
+            float offline = new MultivariateDtw().dtw(user, pro);
+
+            System.out.println(pair[0] + " vs " + pair[1] + (loops > 1 ? " (looped " + loops + "x)" : ""));
+            System.out.printf("  %-24s score=%.5f%n", "Offline multivariate", offline);
+            System.out.printf("  %-24s score=%.5f  pro frame=%d/%d  mean=%.1f us  max=%.1f us%n", "Online",
+                    online.getScore(), online.getProFrame(), pro.getFirstFrame() + pro.getFrameCount() - 1,
+                    total / 1000.0 / user.getFrameCount(), worst / 1000.0);
+            System.out.println();
+        }
+    }
+
+    /**
+     * Ranks the hiphop take against every other sample, once with full DTW and
+     * once abandoning each candidate against the best distance so far.
+     */
+    public static void printEarlyAbandonReport() {
+        String take = "hiphop_moves/pro.txt";
+        String[] references = { "ballet_spin/beginner.txt", "ballet_spin/pro.txt", "jackhiphop/pro.txt" };
+        PoseSequence user = loadSample(take);
+        PoseSequence[] pros = new PoseSequence[references.length];
+        for (int k = 0; k < references.length; k++) {
+            pros[k] = loadSample(references[k]);
+        }
+        DtwEngine engine = new ExactDtw();
+
+        double fullTime = Double.MAX_VALUE;
+        double abandonTime = Double.MAX_VALUE;
+        float fullBest = 0;
+        float abandonBest = 0;
+        int abandoned = 0;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            fullBest = Float.MAX_VALUE;
+            for (PoseSequence pro : pros) {
+                fullBest = Math.min(fullBest, DynamicTimeWarping.totalDtw(user, pro, engine));
+            }
+            fullTime = Math.min(fullTime, elapsedMs(start));
+
+            start = System.nanoTime();
+            abandonBest = Float.POSITIVE_INFINITY;
+            abandoned = 0;
+            for (PoseSequence pro : pros) {
+                float distance = DynamicTimeWarping.totalDtw(user, pro, engine, abandonBest);
+                if (distance == Float.POSITIVE_INFINITY) {
+                    abandoned++;
+                } else {
+                    abandonBest = distance;
+                }
+            }
+            abandonTime = Math.min(abandonTime, elapsedMs(start));
+        }
+
+        System.out.println("=== Early-abandoning ranking ===");
+        System.out.println(take + " against " + references.length + " references");
+        System.out.printf("  %-24s best=%.5f  time=%8.2f ms%n", "Full DTW", fullBest, fullTime);
+        System.out.printf("  %-24s best=%.5f  time=%8.2f ms  abandoned=%d  speedup=%.1fx%n", "Early abandon",
+                abandonBest, abandonTime, abandoned, fullTime / abandonTime);
+        System.out.println();
+    }
+
+    /**
+     * Searches a library of professional routines (each sample at one to three
+     * loops) for the nearest one to each take, against a brute-force totalDtw
+     * over the whole library.
+     */
+    public static void printReferenceSearchReport() {
+        String[] routines = { "ballet_spin/pro.txt", "hiphop_moves/pro.txt" };
+        String[] takes = { "ballet_spin/beginner.txt", "jackhiphop/pro.txt" };
+        WarpingWindow window = WarpingWindow.sakoeChibaFraction(0.2f);
+
+        ReferenceSearch search = new ReferenceSearch(window);
+        for (String routine : routines) {
+            for (int loops = 1; loops <= 3; loops++) {
+                search.addReference(routine + " x" + loops, repeat(loadSample(routine), loops));
+            }
+        }
+        PoseSequence[] library = new PoseSequence[routines.length * 3];
+        for (int r = 0; r < routines.length; r++) {
+            for (int loops = 1; loops <= 3; loops++) {
+                library[r * 3 + loops - 1] = repeat(loadSample(routines[r]), loops);
+            }
+        }
+
+        System.out.println("=== Nearest reference search (" + search.size() + " references, " + window + ") ===");
+        for (String take : takes) {
+            PoseSequence user = loadSample(take);
+
+            float bruteBest = Float.MAX_VALUE;
+            double bruteTime = Double.MAX_VALUE;
+            SearchResult result = null;
+            double searchTime = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                bruteBest = Float.MAX_VALUE;
+                for (PoseSequence pro : library) {
+                    bruteBest = Math.min(bruteBest, DynamicTimeWarping.totalDtw(user, pro, window));
+                }
+                bruteTime = Math.min(bruteTime, elapsedMs(start));
+
+                result = search.nearest(user);
+                searchTime = Math.min(searchTime, result.getElapsedNanos() / 1_000_000.0);
+            }
+
+            System.out.println(take);
+            System.out.printf("  %-24s best=%.5f  time=%8.2f ms%n", "Brute force", bruteBest, bruteTime);
+            System.out.printf("  %-24s best=%.5f  time=%8.2f ms  speedup=%.1fx%n", "Cascade", result.getDistance(),
+                    searchTime, bruteTime / searchTime);
+            System.out.println("  " + result);
+            System.out.println();
+        }
+    }
+
+    /**
+     * Prints the time of ranking a library with one batch against one totalDtw
+     * call per reference, serially and on the common pool.
+     */
+    public static void printBatchReport() {
+        String[] routines = { "ballet_spin/pro.txt", "hiphop_moves/pro.txt", "jackhiphop/pro.txt" };
+        Map<String, PoseSequence> library = new LinkedHashMap<>();
+        for (String routine : routines) {
+            for (int loops = 1; loops <= 3; loops++) {
+                library.put(routine + " x" + loops, repeat(loadSample(routine), loops));
+            }
+        }
+        PoseSequence user = loadSample("ballet_spin/beginner.txt");
+
+        // Compiled once, as a server would at startup
+        List<ReferenceProfile> profiles = new ArrayList<>();
+        for (Map.Entry<String, PoseSequence> reference : library.entrySet()) {
+            profiles.add(ReferenceProfile.compile(reference.getKey(), reference.getValue()));
+        }
+
+        System.out.println("=== Batch comparison (" + library.size() + " references, "
+                + ForkJoinPool.getCommonPoolParallelism() + " workers) ===");
+        float checksum = 0;
+        double separateTime = Double.MAX_VALUE;
+        double batchTime = Double.MAX_VALUE;
+        double parallelTime = Double.MAX_VALUE;
+        double profileTime = Double.MAX_VALUE;
+        List<ReferenceScore> ranking = null;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            checksum = 0;
+            for (PoseSequence pro : library.values()) {
+                checksum += DynamicTimeWarping.totalDtw(user, pro);
+            }
+            separateTime = Math.min(separateTime, elapsedMs(start));
+
+            start = System.nanoTime();
+            ranking = new BatchComparison(user).rank(library, null);
+            batchTime = Math.min(batchTime, elapsedMs(start));
+
+            start = System.nanoTime();
+            ranking = new BatchComparison(user).rank(library, ForkJoinPool.commonPool());
+            parallelTime = Math.min(parallelTime, elapsedMs(start));
+
+            start = System.nanoTime();
+            ranking = new BatchComparison(user).rank(profiles, ForkJoinPool.commonPool());
+            profileTime = Math.min(profileTime, elapsedMs(start));
+        }
+
+        float batchChecksum = 0;
+        for (ReferenceScore score : ranking) {
+            batchChecksum += score.getDistance();
+        }
+        System.out.printf("  %-24s sum=%.5f  time=%8.2f ms%n", "One totalDtw each", checksum, separateTime);
+        System.out.printf("  %-24s sum=%.5f  time=%8.2f ms  speedup=%.1fx%n", "Batch", batchChecksum, batchTime,
+                separateTime / batchTime);
+        System.out.printf("  %-24s sum=%.5f  time=%8.2f ms  speedup=%.1fx%n", "Batch, parallel", batchChecksum,
+                parallelTime, separateTime / parallelTime);
+        System.out.printf("  %-24s sum=%.5f  time=%8.2f ms  speedup=%.1fx%n", "Batch, compiled profiles",
+                batchChecksum, profileTime, separateTime / profileTime);
+        System.out.println("  Nearest: " + ranking.get(0));
+        System.out.println();
+    }
+
+    /**
+     * Prints the time of MergeSort against Collections.sort on shuffled and on
+     * already ordered frame numbers, then of the primitive int[] path against
+     * Arrays.sort.
+     */
+    public static void printSortReport() {
+        int[] sizes = { 100, 10_000, 1_000_000 };
+        Random random = new Random(42);
+
+        System.out.println("=== MergeSort vs. Collections.sort ===");
+        for (int size : sizes) {
+            List<Integer> shuffled = new ArrayList<>();
+            for (int k = 0; k < size; k++) {
+                shuffled.add(k);
+            }
+            Collections.shuffle(shuffled, random);
+            List<Integer> ordered = new ArrayList<>(shuffled);
+            Collections.sort(ordered);
+
+            for (List<Integer> input : List.of(shuffled, ordered)) {
+                // Small inputs are repeated so the timer sees more than noise
+                int repeats = Math.max(1, 1_000_000 / size);
+                double mergeTime = Double.MAX_VALUE;
+                double collectionsTime = Double.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    for (int r = 0; r < repeats; r++) {
+                        MergeSort.mergeSort(new ArrayList<>(input), true);
+                    }
+                    mergeTime = Math.min(mergeTime, elapsedMs(start) / repeats);
+
+                    start = System.nanoTime();
+                    for (int r = 0; r < repeats; r++) {
+                        Collections.sort(new ArrayList<>(input));
+                    }
+                    collectionsTime = Math.min(collectionsTime, elapsedMs(start) / repeats);
+                }
+
+                String label = String.format("%,d %s", size, input == shuffled ? "shuffled" : "ordered");
+                System.out.printf("  %-24s MergeSort=%10.4f ms  Collections.sort=%10.4f ms%n", label, mergeTime,
+                        collectionsTime);
+            }
+        }
+        System.out.println();
+
+        // Primitive path: frame numbers go through counting, arbitrary ints through merge sort
+        System.out.println("=== MergeSort(int[]) vs. Arrays.sort ===");
+        for (int size : sizes) {
+            int[] frames = new int[size];
+            int[] wide = new int[size];
+            for (int k = 0; k < size; k++) {
+                frames[k] = k;
+                wide[k] = random.nextInt();
+            }
+            for (int k = size - 1; k > 0; k--) {
+                int other = random.nextInt(k + 1);
+                int swap = frames[k];
+                frames[k] = frames[other];
+                frames[other] = swap;
+            }
+
+            for (int[] input : new int[][] { frames, wide }) {
+                int repeats = Math.max(1, 1_000_000 / size);
+                double mergeTime = Double.MAX_VALUE;
+                double arraysTime = Double.MAX_VALUE;
+                for (int run = 0; run < RUNS; run++) {
+                    long start = System.nanoTime();
+                    for (int r = 0; r < repeats; r++) {
+                        MergeSort.mergeSort(input.clone(), true);
+                    }
+                    mergeTime = Math.min(mergeTime, elapsedMs(start) / repeats);
+
+                    start = System.nanoTime();
+                    for (int r = 0; r < repeats; r++) {
+                        Arrays.sort(input.clone());
+                    }
+                    arraysTime = Math.min(arraysTime, elapsedMs(start) / repeats);
+                }
+
+                String label = String.format("%,d %s", size, input == frames ? "frame numbers" : "random ints");
+                System.out.printf("  %-24s MergeSort=%10.4f ms  Arrays.sort=%10.4f ms%n", label, mergeTime,
+                        arraysTime);
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * Prints the time of the parallel reader against the single-threaded one on
+     * a large keypoints file, a sample looped until it spans several
+     * megabytes. Every copy repeats the same joint blocks, which replace the
+     * earlier ones, so each reader still parses every byte.
+     */
+    public static void printReadReport() {
+        System.out.println("=== Parallel vs. single-threaded keypoints reading ===");
+        Path file = null;
+        try {
+            byte[] sample = Files.readAllBytes(Path.of(DATABASE + SAMPLE_PAIRS[1][0]));
+            file = Files.createTempFile("keypoints", ".txt");
+            try (OutputStream out = Files.newOutputStream(file)) {
+                for (int copy = 0; copy < READ_REPORT_COPIES; copy++) {
+                    out.write(sample);
+                }
+            }
+
+            PoseSequence serial = null;
+            PoseSequence parallel = null;
+            double serialTime = Double.MAX_VALUE;
+            double parallelTime = Double.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                serial = reader.readPoseSequence(file);
+                serialTime = Math.min(serialTime, elapsedMs(start));
+
+                start = System.nanoTime();
+                parallel = reader.readPoseSequence(file, ForkJoinPool.commonPool());
+                parallelTime = Math.min(parallelTime, elapsedMs(start));
+            }
+
+            System.out.printf("  %.1f MB, cores=%d%s%n", Files.size(file) / 1e6,
+                    Runtime.getRuntime().availableProcessors(),
+                    PoseDataReader.isReadInParallel(file) ? "" : " (one range, both read on the calling thread)");
+            System.out.printf("  %-24s time=%8.2f ms%n", "Single-threaded", serialTime);
+            System.out.printf("  %-24s time=%8.2f ms  speedup=%.1fx  same=%b%n", "Parallel", parallelTime,
+                    serialTime / parallelTime, Arrays.equals(serial.getCoordinates(), parallel.getCoordinates()));
+        } catch (IOException e) {
+            System.out.println("  Skipped: " + e.getMessage());
+        } finally {
+            if (file != null) {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException ignored) {
+                    // A temporary file left behind is harmless
+                }
+            }
+        }
+        System.out.println();
+    }
+
+    /**
+     * Scores a pair with the given engine.
+     *
+     * @return {score, fastest time in ms}
+     */
+    private static double[] timeTotalDtw(PoseSequence user, PoseSequence pro, DtwEngine engine) {
+        float score = 0;
+        double best = Double.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            score = DynamicTimeWarping.totalDtw(user, pro, engine);
+            best = Math.min(best, elapsedMs(start));
+        }
+        return new double[] { score, best };
+    }
+
+    /**
+     * Reads and processes a keypoints file from the motion database.
+     */
+    private static PoseSequence loadSample(String relativePath) {
+        return processing.processPoseData(reader.readPoseSequence(DATABASE + relativePath));
+    }
+
+    /**
+     * Concatenates a sequence with itself to emulate a longer recording.
+     */
+    private static PoseSequence repeat(PoseSequence sequence, int times) {
+        if (times == 1) {
+            return sequence;
+        }
+
+        PoseSequence[] copies = new PoseSequence[times];
+        Arrays.fill(copies, sequence);
+        return concat(copies);
+    }
+
+    /**
+     * Plays sequences one after the other, keeping the joints of the first one.
+     */
+    private static PoseSequence concat(PoseSequence... parts) {
+        int total = 0;
+        for (PoseSequence part : parts) {
+            total += part.getFrameCount();
+        }
+
+        PoseSequence first = parts[0];
+        PoseSequence joined = new PoseSequence(first.getJointNames().toArray(new String[0]), first.getFirstFrame(),
+                total);
+        int offset = 0;
+        for (PoseSequence part : parts) {
+            for (int joint = 0; joint < joined.getJointCount(); joint++) {
+                int source = part.getJointIndex(joined.getJointName(joint));
+                if (source < 0) {
+                    continue;
+                }
+                for (int f = 0; f < part.getFrameCount(); f++) {
+                    if (part.isPresent(source, f)) {
+                        joined.set(joint, offset + f, part.get(source, f, 0), part.get(source, f, 1),
+                                part.get(source, f, 2));
+                    }
+                }
+            }
+            offset += part.getFrameCount();
+        }
+        return joined;
+    }
+
+    /**
+     * @return The captured joints of one frame by name, as a live capture would
+     *         deliver them
+     */
+    private static Map<String, float[]> frame(PoseSequence sequence, int frame) {
+        Map<String, float[]> joints = new HashMap<>();
+        for (int joint = 0; joint < sequence.getJointCount(); joint++) {
+            if (sequence.isPresent(joint, frame)) {
+                joints.put(sequence.getJointName(joint), new float[] { sequence.get(joint, frame, 0),
+                        sequence.get(joint, frame, 1), sequence.get(joint, frame, 2) });
+            }
+        }
+        return joints;
+    }
+
+    /**
+     * @return Relative difference of an approximate score to the exact one, in
+     *         percent
+     */
+    private static double drift(double approximate, double exact) {
+        return exact == 0 ? 0 : (approximate - exact) * 100.0 / exact;
+    }
+
+    private static double elapsedMs(long start) {
+        return (System.nanoTime() - start) / 1_000_000.0;
+    }
+}
@@ -0,0 +1,348 @@
+package com.instructor.main;
+
+import com.instructor.algorithms.AlignmentResult;
+import com.instructor.algorithms.DynamicTimeWarping;
+import com.instructor.algorithms.ExactDtw;
+import com.instructor.algorithms.WarpingWindow;
+import com.instructor.data.KeypointCodec;
+import com.instructor.data.PoseDataReader;
+import com.instructor.data.PoseFile;
+import com.instructor.data.PoseSequence;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Command line check that the optimized kernels and file formats give exactly
+ * the results of the straightforward versions they replaced, on the
+ * motion_database samples and on random inputs with many ties. Run from the
+ * project root; exits with status 1 if any check fails.
+ */
+public class SelfCheck {
+    private static final String DATABASE = "./motion_database/";
+
+    private static final String[] SAMPLES = { "ballet_spin/beginner.txt", "ballet_spin/pro.txt",
+            "hiphop_moves/pro.txt", "jackhiphop/pro.txt" };
+
+    private static final WarpingWindow[] WINDOWS = { WarpingWindow.NONE, WarpingWindow.sakoeChiba(5),
+            WarpingWindow.sakoeChibaFraction(0.1f), WarpingWindow.itakura(2) };
+
+    // Random trajectories per check; coordinates are coarsely quantized so that
+    // equal costs, and with them ties between steps, are frequent
+    private static final int RANDOM_CASES = 200;
+    private static final int QUANTA = 4;
+
+    // Frames of the random pair above WAVEFRONT_THRESHOLD cells
+    private static final int WAVEFRONT_FRAMES = 2100;
+
+    private static final PoseDataReader reader = new PoseDataReader();
+    private static final Random random = new Random(42);
+
+    private static int failures;
+
+    public static void main(String[] args) throws IOException {
+        checkRollingRow();
+        checkLinearSpacePath();
+        checkWavefront();
+        checkParser();
+        checkCodec();
+        checkPoseFile();
+
+        System.out.println(failures == 0 ? "All checks passed" : failures + " check(s) failed");
+        if (failures > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Checks that the rolling-row distance equals the cumulative cost of the
+     * full-matrix alignment, bit for bit.
+     */
+    public static void checkRollingRow() {
+        int cases = 0;
+        int mismatches = 0;
+        for (float[][] pair : trajectoryPairs()) {
+            for (WarpingWindow window : WINDOWS) {
+                float rolling = DynamicTimeWarping.dtw(pair[0], pair[1], window, Float.POSITIVE_INFINITY);
+                AlignmentResult full = new ExactDtw(window).align(pair[0], frames(pair[0]), pair[1],
+                        frames(pair[1]));
+                if (Float.floatToIntBits(rolling) != Float.floatToIntBits(full.getDistance())) {
+                    mismatches++;
+                }
+                cases++;
+            }
+        }
+        report("Rolling row vs full matrix", cases, mismatches);
+    }
+
+    /**
+     * Checks that the divide-and-conquer alignment returns the full-matrix path,
+     * ties included.
+     */
+    public static void checkLinearSpacePath() {
+        int cases = 0;
+        int mismatches = 0;
+        for (float[][] pair : trajectoryPairs()) {
+            for (WarpingWindow window : WINDOWS) {
+                int[] userFrames = frames(pair[0]);
+                int[] proFrames = frames(pair[1]);
+                List<int[]> full = DynamicTimeWarping.dtwWithAlignmentPath(pair[0], userFrames, pair[1], proFrames,
+                        window);
+                List<int[]> linear = DynamicTimeWarping.linearSpaceAlignmentPath(pair[0], userFrames, pair[1],
+                        proFrames, window);
+                if (!samePath(full, linear)) {
+                    mismatches++;
+                }
+                cases++;
+            }
+        }
+        report("Hirschberg vs full matrix", cases, mismatches);
+    }
+
+    /**
+     * Checks that the parallel wavefront distance, used above
+     * WAVEFRONT_THRESHOLD cells, equals the rolling-row distance bit for bit.
+     */
+    public static void checkWavefront() {
+        if (ForkJoinPool.getCommonPoolParallelism() <= 1) {
+            System.out.println("SKIP Wavefront vs rolling row: single core, the wavefront is never used");
+            return;
+        }
+
+        int cases = 0;
+        int mismatches = 0;
+        float[] user = randomTrajectory(WAVEFRONT_FRAMES);
+        float[] pro = randomTrajectory(WAVEFRONT_FRAMES + 37);
+        for (WarpingWindow window : WINDOWS) {
+            float wavefront = DynamicTimeWarping.dtw(user, pro, window);
+            float rolling = DynamicTimeWarping.dtw(user, pro, window, Float.POSITIVE_INFINITY);
+            if (Float.floatToIntBits(wavefront) != Float.floatToIntBits(rolling)) {
+                mismatches++;
+            }
+            cases++;
+        }
+        report("Wavefront vs rolling row", cases, mismatches);
+    }
+
+    /**
+     * Checks that the byte parser of the keypoints reader returns what
+     * Float.parseFloat returns for every coordinate, in all the number forms a
+     * file may hold.
+     */
+    public static void checkParser() throws IOException {
+        String[] formats = { "%.4f", "%.1f", "%.7f", "%.12f", "%.0f", "%+.4f", "%.3e" };
+        String[] joints = { "nose", "wrist_left", "ankle_right" };
+        int frames = 500;
+
+        StringBuilder text = new StringBuilder();
+        String[][][] values = new String[joints.length][frames][3];
+        for (int joint = 0; joint < joints.length; joint++) {
+            text.append(joints[joint]).append(":\n");
+            for (int frame = 0; frame < frames; frame++) {
+                for (int axis = 0; axis < 3; axis++) {
+                    String format = formats[random.nextInt(formats.length)];
+                    float value = (random.nextFloat() - 0.5f) * (float) Math.pow(10, random.nextInt(6) - 2);
+                    values[joint][frame][axis] = String.format(Locale.ROOT, format, value);
+                }
+                text.append("  Frame ").append(frame).append(": x=").append(values[joint][frame][0])
+                        .append(", y=").append(values[joint][frame][1]).append(", z=")
+                        .append(values[joint][frame][2]).append('\n');
+            }
+        }
+
+        Path file = Files.createTempFile("selfcheck", ".txt");
+        try {
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+            PoseSequence sequence = reader.readPoseSequence(file);
+
+            int mismatches = 0;
+            for (int joint = 0; joint < joints.length; joint++) {
+                int index = sequence.getJointIndex(joints[joint]);
+                for (int frame = 0; frame < frames; frame++) {
+                    for (int axis = 0; axis < 3; axis++) {
+                        float expected = Float.parseFloat(values[joint][frame][axis]);
+                        float parsed = index < 0 ? Float.NaN : sequence.get(index, frame, axis);
+                        if (Float.floatToIntBits(parsed) != Float.floatToIntBits(expected)) {
+                            mismatches++;
+                        }
+                    }
+                }
+            }
+            report("Parser vs Float.parseFloat", joints.length * frames * 3, mismatches);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Checks that the codec at its default error bound gives back exactly the
+     * coordinates read from the text samples.
+     */
+    public static void checkCodec() throws IOException {
+        KeypointCodec codec = new KeypointCodec();
+        int mismatches = 0;
+        for (String sample : SAMPLES) {
+            PoseSequence original = reader.readPoseSequence(Path.of(DATABASE + sample));
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+            codec.encode(original, encoded);
+            PoseSequence decoded = KeypointCodec.decode(new ByteArrayInputStream(encoded.toByteArray()));
+
+            // The codec turns -0.0 into 0.0, which compares equal
+            if (!sameSequence(original, decoded, false)) {
+                mismatches++;
+            }
+        }
+        report("Codec round trip", SAMPLES.length, mismatches);
+    }
+
+    /**
+     * Checks that a .pose file gives back the sequence written to it, bit for
+     * bit, and that converting a text file reads the same as the text reader.
+     */
+    public static void checkPoseFile() throws IOException {
+        Path pose = Files.createTempFile("selfcheck", PoseFile.EXTENSION);
+        try {
+            int mismatches = 0;
+            for (String sample : SAMPLES) {
+                Path text = Path.of(DATABASE + sample);
+                PoseSequence original = reader.readPoseSequence(text);
+
+                PoseFile.write(pose, original, 30);
+                PoseFile written = PoseFile.open(pose);
+                if (written.getFps() != 30 || !sameSequence(original, written.toSequence(), true)) {
+                    mismatches++;
+                }
+
+                PoseFile.convert(text, pose, 0);
+                if (!sameSequence(original, reader.readPoseSequence(pose), true)) {
+                    mismatches++;
+                }
+            }
+            report(".pose round trip", SAMPLES.length * 2, mismatches);
+        } finally {
+            Files.deleteIfExists(pose);
+        }
+    }
+
+    /**
+     * @return {user, pro} trajectory pairs: every joint of the samples against
+     *         the same joint of the next sample, and random pairs with ties
+     */
+    private static List<float[][]> trajectoryPairs() {
+        List<float[][]> pairs = new ArrayList<>();
+        for (int s = 0; s < SAMPLES.length; s++) {
+            PoseSequence user = loadSample(SAMPLES[s]);
+            PoseSequence pro = loadSample(SAMPLES[(s + 1) % SAMPLES.length]);
+            for (int joint = 0; joint < user.getJointCount(); joint++) {
+                int proJoint = pro.getJointIndex(user.getJointName(joint));
+                if (proJoint < 0) {
+                    continue;
+                }
+                float[] userPacked = user.packJoint(joint);
+                float[] proPacked = pro.packJoint(proJoint);
+                if (userPacked.length > 0 && proPacked.length > 0) {
+                    pairs.add(new float[][] { userPacked, proPacked });
+                }
+            }
+        }
+
+        for (int c = 0; c < RANDOM_CASES; c++) {
+            pairs.add(new float[][] { randomTrajectory(1 + random.nextInt(60)),
+                    randomTrajectory(1 + random.nextInt(60)) });
+        }
+        return pairs;
+    }
+
+    private static PoseSequence loadSample(String relativePath) {
+        try {
+            return reader.readPoseSequence(Path.of(DATABASE + relativePath));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * @return Packed trajectory of the given number of frames with coordinates
+     *         in {0, 1, ..., QUANTA - 1} / QUANTA
+     */
+    private static float[] randomTrajectory(int frames) {
+        float[] trajectory = new float[frames * 3];
+        for (int k = 0; k < trajectory.length; k++) {
+            trajectory[k] = (float) random.nextInt(QUANTA) / QUANTA;
+        }
+        return trajectory;
+    }
+
+    /**
+     * @return Frame numbers 0..n-1 of a packed trajectory
+     */
+    private static int[] frames(float[] trajectory) {
+        int[] frames = new int[trajectory.length / 3];
+        for (int k = 0; k < frames.length; k++) {
+            frames[k] = k;
+        }
+        return frames;
+    }
+
+    private static boolean samePath(List<int[]> a, List<int[]> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int k = 0; k < a.size(); k++) {
+            if (a.get(k)[0] != b.get(k)[0] || a.get(k)[1] != b.get(k)[1]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Compares joints, frame range, presence and coordinates.
+     *
+     * @param exact True to compare coordinates bit for bit, false to compare
+     *              them with ==
+     */
+    private static boolean sameSequence(PoseSequence a, PoseSequence b, boolean exact) {
+        if (!a.getJointNames().equals(b.getJointNames()) || a.getFirstFrame() != b.getFirstFrame()
+                || a.getFrameCount() != b.getFrameCount()) {
+            return false;
+        }
+        for (int joint = 0; joint < a.getJointCount(); joint++) {
+            for (int frame = 0; frame < a.getFrameCount(); frame++) {
+                if (a.isPresent(joint, frame) != b.isPresent(joint, frame)) {
+                    return false;
+                }
+                if (!a.isPresent(joint, frame)) {
+                    continue;
+                }
+                for (int axis = 0; axis < 3; axis++) {
+                    float x = a.get(joint, frame, axis);
+                    float y = b.get(joint, frame, axis);
+                    if (exact ? Float.floatToIntBits(x) != Float.floatToIntBits(y) : x != y) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void report(String name, int cases, int mismatches) {
+        if (mismatches == 0) {
+            System.out.printf("PASS %-28s %d cases%n", name, cases);
+        } else {
+            System.out.printf("FAIL %-28s %d of %d cases differ%n", name, mismatches, cases);
+            failures++;
+        }
+    }
+}